@@ -1,9 +1,15 @@
 package project2;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import project2.SemanticNetworkObj;
 import project2.RavensFigure;
@@ -34,14 +40,102 @@ public class Agent {
 	/*** Utility class used to complete matching calculations*/
 	private FrameUtil frameUtil;
 
+	/*** The approaches used to score each possible answer*/
+	private ScorerPipeline pipeline;
+
+	/*** Pool used to solve batches of problems, created when first needed*/
+	private ForkJoinPool pool;
+
+	/*** Solver used for matrices other than 2x1 and 2x2, such as 3x3*/
+	private MatrixSolver matrixSolver;
+
+	/*** Solver used for problems which only have images*/
+	private VisualSolver visualSolver;
+
+	/*** Problem images by squashed problem name, read when first needed*/
+	private Map<String, File> images;
+
+	/*** Problem images which have already been decoded*/
+	private ImageCache imageCache;
+
+	/*** Time allowed for each problem in nanoseconds, 0 for no limit*/
+	private long timeBudget;
+
+	/*** Counts of the problems solved, their times and deadline hits*/
+	private SolveMetrics metrics;
+
+	/*** If progress is printed for each problem*/
+	private boolean verbose;
+
+	/*** System property which can be used to configure the scorers (See ScorerPipeline)*/
+	public static final String SCORERS_PROPERTY = "agent.scorers";
+
+	/*** System property which can be used to change the folder the problem images are read from*/
+	public static final String IMAGES_PROPERTY = "agent.images";
+
+	/*** System property which can be used to change the time allowed for each problem, in milliseconds*/
+	public static final String TIME_BUDGET_PROPERTY = "agent.timeBudgetMillis";
+
+	/*** Time allowed for each problem unless the property is set, in milliseconds.  There is no
+	 *   limit by default, so the answers don't depend on how busy the machine is (See SolveServer)*/
+	public static final long DEFAULT_TIME_BUDGET = 0;
+
+	/*** System property which can be set to false to stop progress being printed for each problem*/
+	public static final String VERBOSE_PROPERTY = "agent.verbose";
+
 	/******************************************************************************
 	 * Constructor to instantiate the RavenUtil that will be used to complete
-	 * the calculations. 
+	 * the calculations.  The scorers are read from the agent.scorers system
+	 * property when it is set.
 	 ******************************************************************************/
 	public Agent() {
+		this(ScorerPipeline.fromSpec(System.getProperty(SCORERS_PROPERTY, ScorerPipeline.DEFAULT_SPEC)));
+	}
+
+	/******************************************************************************
+	 * Constructor to instantiate the Agent with the given scorers. 
+	 * @param pipeline - the approaches used to score each possible answer
+	 ******************************************************************************/
+	public Agent(ScorerPipeline pipeline) {
 		matchUtil = new MatchUtil();
 		smUtil = new SemanticNetworkUtil();
 		frameUtil = new FrameUtil();
+		matrixSolver = new MatrixSolver();
+		visualSolver = new VisualSolver();
+		imageCache = new ImageCache();
+		metrics = new SolveMetrics();
+		verbose = Boolean.parseBoolean(System.getProperty(VERBOSE_PROPERTY, "true"));
+		setTimeBudget(Long.getLong(TIME_BUDGET_PROPERTY, DEFAULT_TIME_BUDGET).longValue());
+		this.pipeline = pipeline;
+	}
+
+	/******************************************************************************
+	 * Change the time allowed for each problem.  Once it runs out the best answer
+	 * found so far is given (See ScorerPipeline).
+	 * @param millis - the time allowed in milliseconds, 0 for no limit
+	 ******************************************************************************/
+	public void setTimeBudget(long millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException("Time budget can not be negative: " + millis);
+		}
+		timeBudget = millis * 1000000L;
+	}
+
+	/******************************************************************************
+	 * Turn the progress printed for each problem on or off.  Printing is slow
+	 * and locks System.out, so it is best turned off when problems are solved
+	 * on several threads.
+	 * @param verbose - true to print progress
+	 ******************************************************************************/
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/******************************************************************************
+	 * @return SolveMetrics - counts of the problems solved by this agent
+	 ******************************************************************************/
+	public SolveMetrics getMetrics() {
+		return metrics;
 	}
 
 	/******************************************************************************
@@ -53,10 +147,13 @@ public class Agent {
 		String bestAnswer = "";
 		if (problem.getProblemType().equals("2x1")) {
 			bestAnswer = solve2x1(problem);
-		} else {
+		} else if (problem.getProblemType().equals("2x2")) {
 			bestAnswer = solve2x2(problem);
+		} else {
+			progress("Solving Question: " + problem.getName());
+			bestAnswer = solve(problem, null).getAnswer();
 		}
-		System.out.println(" - Finished!");
+		progress(" - Finished!" + System.lineSeparator());
 		return bestAnswer;
 	}
 
@@ -67,30 +164,309 @@ public class Agent {
     ******************************************************************************/
 	public String solve2x1(RavensProblem problem) {
 
-			//No logic required here....just be random
-			//This project does not need to solve 2x1.
-			//TODO:Add some sort of learning here!!!!!
-    		Random random = new Random();
-    		return String.valueOf(random.nextInt((6)));
+		progress("Solving Question: " + problem.getName());
 
-
- 
+		SolveResult result = solve(problem, null);
+		if (result.isDeadlineHit()) {
+			progress(" - Deadline hit");
+		}
+		return result.getAnswer();
 	}
 
 	/******************************************************************************
-	 * Method to solve a 2x1 Matrix 
+	 * Method to solve a 2x2 Matrix 
 	 * @param problem - Raven's Problem to solve
 	 * @return String - the agent's best answer for the problem
 	 ******************************************************************************/
 	public String solve2x2(RavensProblem problem) {
 
-		System.out.print("Solving Question: " + problem.getName());
-		// For cases when multiple "best" answers exist
-		List<String> tiedAnswers = new ArrayList<String>();
-		boolean tieExists = false;
+		progress("Solving Question: " + problem.getName());
 
-		String bestAnswer = "";
-		int bestScore = -999;
+		SolveResult result = solve(problem, null);
+		if (result.isDeadlineHit()) {
+			progress(" - Deadline hit");
+		}
+		return result.getAnswer();
+	}
+
+	/******************************************************************************
+	 * Method to solve a problem from its image in the problem images folder
+	 * (See VisualSolver).
+	 * @param problem - Raven's Problem to solve
+	 * @param image - the image of the problem
+	 * @return String - the agent's best answer, or null if the image can't be read
+	 ******************************************************************************/
+	private String solveFromImage(RavensProblem problem, File image) {
+		progress(" - Solving From Image");
+		try {
+			return String.valueOf(visualSolver.solve(imageCache.load(image)));
+		} catch (IOException e) {
+			progress("Could not read image for " + problem.getName() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/******************************************************************************
+	 * Helper method to check if any figure in the problem has been described
+	 * @param problem - Raven's Problem to check
+	 * @return boolean - true if at least one figure has objects
+	 ******************************************************************************/
+	private boolean hasVerbalDescription(RavensProblem problem) {
+		for (RavensFigure figure : problem.getFigures().values()) {
+			if (!figure.getObjects().isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/******************************************************************************
+	 * Helper method to print progress when the agent is verbose
+	 * @param text - the text to print
+	 ******************************************************************************/
+	private void progress(String text) {
+		if (verbose) {
+			System.out.print(text);
+		}
+	}
+
+	/******************************************************************************
+	 * @return Map<String, File> - the index of problem images, built the first
+	 * 							   time it is needed
+	 ******************************************************************************/
+	private synchronized Map<String, File> getImages() {
+		if (images == null) {
+			images = new ImageUtil().indexImages(new File(System.getProperty(IMAGES_PROPERTY, ImageUtil.IMAGES_FOLDER)));
+		}
+		return images;
+	}
+
+	/******************************************************************************
+	 * Method to solve a batch of problems.  The problems are split across the
+	 * available cores and share a BatchContext, so work for figures and problems
+	 * which appear more than once in the batch is only done once.
+	 * 
+	 * @param problems - Raven's Problems to solve
+	 * @return List<SolveResult> - the result for each problem, in the same order
+	 ******************************************************************************/
+	public List<SolveResult> Solve(Collection<RavensProblem> problems) {
+		return Solve(problems, new BatchContext());
+	}
+
+	/******************************************************************************
+	 * Method to solve a batch of problems with the given context, which can be
+	 * shared by several batches (See Solve(Collection)).
+	 * 
+	 * @param problems - Raven's Problems to solve
+	 * @param context - the resources shared by the problems
+	 * @return List<SolveResult> - the result for each problem, in the same order
+	 ******************************************************************************/
+	public List<SolveResult> Solve(Collection<RavensProblem> problems, BatchContext context) {
+		List<RavensProblem> toSolve = new ArrayList<RavensProblem>(problems);
+		SolveResult[] results = new SolveResult[toSolve.size()];
+		getPool().invoke(new BatchTask(toSolve, results, 0, toSolve.size(), context));
+		return Arrays.asList(results);
+	}
+
+	/******************************************************************************
+	 * Method to solve a problem without printing progress, within the time
+	 * budget.  When the budget runs out the best answer found so far is
+	 * returned and the result is marked as a deadline hit.
+	 * 
+	 * @param problem - Raven's Problem to solve
+	 * @param context - the resources shared with other problems, can be null
+	 * @return SolveResult - the agent's best answer and the score for each answer
+	 ******************************************************************************/
+	public SolveResult solve(RavensProblem problem, BatchContext context) {
+		SolveContext solveContext = SolveContext.current();
+		long start = System.nanoTime();
+		solveContext.startDeadline(timeBudget);
+		SolveResult toReturn;
+		boolean deadlineHit;
+		try {
+			toReturn = solveMatrix(problem, context);
+		} finally {
+			deadlineHit = solveContext.endDeadline();
+		}
+		if (deadlineHit) {
+			toReturn = new SolveResult(toReturn.getProblemName(), toReturn.getAnswer(), toReturn.getScores(), true);
+		}
+		metrics.record(toReturn, System.nanoTime() - start);
+		return toReturn;
+	}
+
+	/******************************************************************************
+	 * Method to solve a Matrix.  Problems with only an image are solved from
+	 * the image.  2x1 and 2x2 Matrices are analyzed the same way and scored by
+	 * the same pipeline, a 2x1 Matrix just has no column to compare.
+	 * 
+	 * @param problem - Raven's Problem to solve
+	 * @param context - the resources shared with other problems, can be null
+	 * @return SolveResult - the agent's best answer and the score for each answer
+	 ******************************************************************************/
+	private SolveResult solveMatrix(RavensProblem problem, BatchContext context) {
+
+		// Problems without a description are solved from their image when there is one
+		if (!hasVerbalDescription(problem)) {
+			File image = getImages().get(ImageUtil.getImageKey(problem.getName()));
+			String answer = image == null ? null : solveFromImage(problem, image);
+			if (answer != null) {
+				return new SolveResult(problem.getName(), answer, new int[0]);
+			}
+		}
+
+		// Any other size of matrix goes to the general solver
+		if (!problem.getProblemType().equals("2x1") && !problem.getProblemType().equals("2x2")) {
+			return matrixSolver.solve(problem);
+		}
+
+		// The same problem may have been solved already in this batch
+		String key = null;
+		if (context != null) {
+			StringBuilder problemKey = new StringBuilder(problem.getProblemType());
+			for (String name : new String[] { "A", "B", "C", "1", "2", "3", "4", "5", "6" }) {
+				problemKey.append(context.getKey(problem.getFigures().get(name)));
+			}
+			key = problemKey.toString();
+			SolveResult cached = context.getResult(key);
+			if (cached != null) {
+				return new SolveResult(problem.getName(), cached.getAnswer(), cached.getScores().clone());
+			}
+		}
+
+		// Score each of the possible answers with the configured approaches
+		ProblemAnalysis analysis = analyze(problem, context);
+		int[] scores = pipeline.score(analysis);
+
+		// Pick the best answer, the tie breakers only run if there is more than one
+		String bestAnswer = String.valueOf(pipeline.chooseBest(analysis, scores) + 1);
+
+		// Answers cut short by the deadline are not kept, so the problem can be solved fully later
+		SolveResult toReturn = new SolveResult(problem.getName(), bestAnswer, scores);
+		if (context != null && !SolveContext.current().isDeadlineHit()) {
+			context.putResult(key, new SolveResult(problem.getName(), bestAnswer, scores.clone()));
+		}
+		return toReturn;
+	}
+
+	/******************************************************************************
+	 * Method to analyze a 2x1 or 2x2 Matrix before the possible answers are
+	 * scored.  The objects in every figure are matched, the Frame for the answer
+	 * is calculated and the Semantic Networks between the example figures are
+	 * created.  The analysis of the example figures is shared through the
+	 * context when one is given.
+	 * 
+	 * @param problem - Raven's Problem to analyze
+	 * @param context - the resources shared with other problems, can be null
+	 * @return ProblemAnalysis - everything the scorers need to score the answers
+	 ******************************************************************************/
+	private ProblemAnalysis analyze(RavensProblem problem, BatchContext context) {
+
+		// Get each of the figures in the questions
+		HashMap<String, RavensFigure> questionSet = problem.getFigures();
+
+		ProblemAnalysis baseline = null;
+		String key = null;
+		if (context != null) {
+			key = problem.getProblemType() + context.getKey(questionSet.get("A"))
+					+ context.getKey(questionSet.get("B")) + context.getKey(questionSet.get("C"));
+			baseline = context.getBaseline(key);
+		}
+		if (baseline == null) {
+			baseline = problem.getProblemType().equals("2x1")
+					? analyzeBaseline2x1(problem, context) : analyzeBaseline2x2(problem, context);
+
+			// A baseline matched in a hurry can map two objects to one, so only a full one is shared
+			if (context != null && !SolveContext.current().isDeadlineHit()) {
+				context.putBaseline(key, baseline);
+			}
+		}
+
+		ProblemAnalysis analysis = new ProblemAnalysis(baseline);
+
+		// Answers are matched to B in a 2x2 Matrix, and to C when there is no column
+		HashMap<String, HashMap<String, String>> matchValues = analysis.getFigureValues(analysis.hasColumns() ? "B" : "C");
+
+		// Step through each of the possible answers and match it's objects to the figures
+		for (int i = 1; i <= 6; i++) {
+			
+			// Get the next possible answer
+			RavensFigure nextAnswer = questionSet.get(String.valueOf(i));
+			
+			HashMap<String, HashMap<String, String>> nextValues = context != null
+					? context.getValuesMap(nextAnswer) : matchUtil.getValuesMap(nextAnswer);
+
+			//Use Analogical Reasoning to match objects.  Only the answer is changed,
+			//so the baseline can be shared.
+			matchUtil.matchObjects(matchValues, nextValues);
+
+			analysis.addAnswerValues(nextValues);
+		}
+
+		return analysis;
+	}
+
+	/******************************************************************************
+	 * Method to analyze the example figures (A&B) and the prompt figure (C) of a
+	 * 2x1 Matrix.  The transitions from A to B are applied to C to calculate the
+	 * answer Frame.  There is no column, so there is no Semantic Network between
+	 * A and C.  The result must not be changed once it is created since it can
+	 * be shared between problems.
+	 * 
+	 * @param problem - Raven's Problem to analyze
+	 * @param context - the resources shared with other problems, can be null
+	 * @return ProblemAnalysis - the analysis without any possible answers
+	 ******************************************************************************/
+	private ProblemAnalysis analyzeBaseline2x1(RavensProblem problem, BatchContext context) {
+
+		ProblemAnalysis analysis = new ProblemAnalysis();
+
+		// Get each of the figures in the questions
+		HashMap<String, RavensFigure> questionSet = problem.getFigures();
+
+		HashMap<String, HashMap<String, String>> figureAValues = context != null
+				? context.getValuesMap(questionSet.get("A")) : matchUtil.getValuesMap(questionSet.get("A"));
+		HashMap<String, HashMap<String, String>> figureBValues = context != null
+				? context.getValuesMap(questionSet.get("B")) : matchUtil.getValuesMap(questionSet.get("B"));
+		HashMap<String, HashMap<String, String>> figureCValues = context != null
+				? context.getValuesMap(questionSet.get("C")) : matchUtil.getValuesMap(questionSet.get("C"));
+
+		//match the objects using Analogical Reasoning.  C is matched to A so the
+		//transitions of A's objects can be applied to the matching objects in C
+		matchUtil.matchObjects(figureAValues, figureBValues);
+		matchUtil.matchObjects(figureAValues, figureCValues);
+
+		//The Frames Approach
+		TransitionList transitions = new TransitionList();
+		transitions.addAll(frameUtil.calcTransitions(figureAValues, figureBValues));
+		Frame frameC = frameUtil.convertToFrame(figureCValues);
+		Frame calculatedFrame = new Frame("calculated");
+		frameUtil.applyTransformation(frameC, transitions, calculatedFrame);
+
+		analysis.setCalculatedFrameValues(matchUtil.getValuesMap(calculatedFrame));
+
+		//The Semantic Network approach
+		analysis.setBaselineDiffAB(smUtil.calculateDifference(figureAValues, figureBValues));
+
+		analysis.setFigureValues("A", figureAValues);
+		analysis.setFigureValues("B", figureBValues);
+		analysis.setFigureValues("C", figureCValues);
+
+		return analysis;
+	}
+
+	/******************************************************************************
+	 * Method to analyze the example figures (A&B) and the prompt figure (C) of a
+	 * 2x2 Matrix.  The result must not be changed once it is created since it can
+	 * be shared between problems.
+	 * 
+	 * @param problem - Raven's Problem to analyze
+	 * @param context - the resources shared with other problems, can be null
+	 * @return ProblemAnalysis - the analysis without any possible answers
+	 ******************************************************************************/
+	private ProblemAnalysis analyzeBaseline2x2(RavensProblem problem, BatchContext context) {
+
+		ProblemAnalysis analysis = new ProblemAnalysis();
 
 		// Get each of the figures in the questions
 		HashMap<String, RavensFigure> questionSet = problem.getFigures();
@@ -103,12 +479,12 @@ public class Agent {
 		// Break the object and it's attributes down into an iterable object
 		// where the key is object name, and the value is a map of the object's attribute
 		// names and the corresponding attribute values
-		HashMap<String, HashMap<String, String>> figureAValues = matchUtil
-				.getValuesMap(figureA);
-		HashMap<String, HashMap<String, String>> figureBValues = matchUtil
-				.getValuesMap(figureB);
-		HashMap<String, HashMap<String, String>> figureCValues = matchUtil
-				.getValuesMap(figureC);
+		HashMap<String, HashMap<String, String>> figureAValues = context != null
+				? context.getValuesMap(figureA) : matchUtil.getValuesMap(figureA);
+		HashMap<String, HashMap<String, String>> figureBValues = context != null
+				? context.getValuesMap(figureB) : matchUtil.getValuesMap(figureB);
+		HashMap<String, HashMap<String, String>> figureCValues = context != null
+				? context.getValuesMap(figureC) : matchUtil.getValuesMap(figureC);
 
 		//match the objects using Analogical Reasoning
 		matchUtil.matchObjects(figureAValues, figureBValues);
@@ -124,72 +500,70 @@ public class Agent {
 		Frame calculatedFrame = new Frame("calculated");
 		frameUtil.applyTransformation(frameA, transitions, calculatedFrame);
 
-		HashMap<String, HashMap<String, String>> calculatedFrameValues = matchUtil
-				.getValuesMap(calculatedFrame);
+		analysis.setCalculatedFrameValues(matchUtil.getValuesMap(calculatedFrame));
 		
 		//The Semantic Network approach
 		//Determine the differences which exist between Figure A and Figure B
-    	List<SemanticNetworkObj> baselineDiffAB = smUtil.calculateDifference(figureAValues, figureBValues);
+		analysis.setBaselineDiffAB(smUtil.calculateDifference(figureAValues, figureBValues));
 		
     	//Determine the differences which exist between Figure A and Figure C
-    	List<SemanticNetworkObj> baselineDiffAC = smUtil.calculateDifference(figureAValues, figureCValues);
-    	
-		// Step through each of the possible answers and make Semantic Network and Frame Comparisons
-		for (int i = 1; i <= 6; i++) {
-			
-			// Get the next possible answer
-			RavensFigure nextAnswer = questionSet.get(String.valueOf(i));
-			
-			HashMap<String, HashMap<String, String>> nextValues = matchUtil
-					.getValuesMap(nextAnswer);
+		analysis.setBaselineDiffAC(smUtil.calculateDifference(figureAValues, figureCValues));
 
-			//Use Analogical Reasoning to match objects
-			matchUtil.matchObjects(figureBValues, nextValues);
-			matchUtil.matchObjects(figureBValues, figureCValues);
-			
-			
-			//Frames approach
-			int score = frameUtil.compareFrames(nextValues, calculatedFrameValues);
-
-			//Semantic Network Approach - 
-    		//Determine the differences which exist between Figure B and the possible answer "i"
-    		List<SemanticNetworkObj> testDiffBD = smUtil.calculateDifference(figureBValues, nextValues);
-    		
-    		//Determine the differences which exist between Figure C and the possible answer "i"
-    		List<SemanticNetworkObj> testDiffCD = smUtil.calculateDifference(figureCValues, nextValues);
-    		
-    		//Compare the differences between A&B to those between C&Answer "i"
-    		score += smUtil.compareDifference(baselineDiffAB, testDiffCD);
-    		
-    		//Compare the differences between A&C to those between B&Answer "i"
-    		score += smUtil.compareDifference(baselineDiffAC, testDiffBD);
-    		
-			// Capture if this score is better than the previous best
-			if (score > bestScore) {
-				bestScore = score;
-				bestAnswer = String.valueOf(i);
-				tieExists = false;
-			}
+		analysis.setFigureValues("A", figureAValues);
+		analysis.setFigureValues("B", figureBValues);
+		analysis.setFigureValues("C", figureCValues);
 
-			// If the scores are the same, prepare to guess...
-			else if (score == bestScore) {
-				tieExists = true;
-				tiedAnswers.add(String.valueOf(i));
-				if (!tiedAnswers.contains(bestAnswer)) {
-					tiedAnswers.add(bestAnswer);
-				}
-			}
+		return analysis;
+	}
+
+	/******************************************************************************
+	 * Helper method to get the pool the batches are solved on, which is created
+	 * the first time a batch is solved.
+	 ******************************************************************************/
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 		}
+		return pool;
+	}
 
-		// If there is a tie, just make a random guess
-		if (tieExists) {
-			Random random = new Random();
-			bestAnswer = String.valueOf(tiedAnswers.get(random
-					.nextInt((tiedAnswers.size()))));
+	/******************************************************************************
+	 * Task which solves a range of the problems in a batch, splitting the range
+	 * in half until it is small enough to solve on one thread.
+	 ******************************************************************************/
+	private class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/*** Ranges this size or smaller are solved without splitting */
+		private static final int THRESHOLD = 2;
+
+		private List<RavensProblem> problems;
+		private SolveResult[] results;
+		private int start;
+		private int end;
+		private BatchContext context;
+
+		private BatchTask(List<RavensProblem> problems, SolveResult[] results, int start, int end,
+				BatchContext context) {
+			this.problems = problems;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+			this.context = context;
 		}
 
-		return bestAnswer;
+		@Override
+		protected void compute() {
+			if (end - start <= THRESHOLD) {
+				for (int i = start; i < end; i++) {
+					results[i] = solve(problems.get(i), context);
+				}
+			} else {
+				int middle = (start + end) / 2;
+				invokeAll(new BatchTask(problems, results, start, middle, context),
+						new BatchTask(problems, results, middle, end, context));
+			}
+		}
 	}
-
-	
 }
@@ -0,0 +1,113 @@
+package project2;
+
+import java.util.Map;
+
+/*******************************************************************************
+ * An AttributeSignature packs the attribute/value pairs of one object into a
+ * fixed 256 bit set, so MatchUtil can estimate how similar two objects are
+ * with a popcount of their ANDed words instead of comparing every attribute
+ * of one with every attribute of the other.
+ *
+ * Each pair sets as many bits as the weight of its attribute (See getWeight),
+ * chosen by hashing the pair, so two objects which share a pair share those
+ * bits and the popcount of the shared bits is the similarity score MatchUtil
+ * would award.  Pairs which hash to the same bits can make the estimate a
+ * little too high or too low, which is why MatchUtil confirms the best
+ * estimates with an exact score.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class AttributeSignature {
+
+	/*** Number of words, and bits, in a signature */
+	public static final int WORDS = 4;
+	public static final int BITS = WORDS * 64;
+
+	/*** The packed bits */
+	private long[] words;
+
+	/***************************************************************
+	 * Constructor for an empty signature
+	****************************************************************/
+	public AttributeSignature() {
+		this.words = new long[WORDS];
+	}
+
+	/***************************************************************
+	 * Constructor for the signature of an object's values
+	 *
+	 * @param values - the value of each attribute by name, can be null
+	****************************************************************/
+	public AttributeSignature(Map<String, String> values) {
+		this();
+		if(values != null) {
+			for(Map.Entry<String, String> value : values.entrySet()) {
+				add(value.getKey(), value.getValue());
+			}
+		}
+	}
+
+	/***************************************************************
+	 * Add an attribute/value pair to the signature, a null value is
+	 * left out since it can't match anything
+	 *
+	 * @param name - the name of the attribute
+	 * @param value - the value of the attribute
+	****************************************************************/
+	public void add(String name, String value) {
+		if(value == null) {
+			return;
+		}
+		int hash = mix(name.hashCode() * 31 + value.hashCode());
+
+		//Double hashing with an odd step gives the pair distinct bits
+		int step = mix(hash) | 1;
+		for(int i = 0; i < getWeight(name); i++) {
+			int bit = (hash + i * step) & (BITS - 1);
+			words[bit >>> 6] |= 1L << (bit & 63);
+		}
+	}
+
+	/***************************************************************
+	 * @return int - the estimated similarity score, the number of bits
+	 * 				 set in both signatures
+	****************************************************************/
+	public int similarity(AttributeSignature other) {
+		int toReturn = 0;
+		for(int i = 0; i < WORDS; i++) {
+			toReturn += Long.bitCount(words[i] & other.words[i]);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * The score awarded when two objects have the same value for an
+	 * attribute.  Shape says the most about which object is which,
+	 * then fill.
+	 *
+	 * @param name - the name of the attribute
+	 * @return int - the weight of the attribute
+	****************************************************************/
+	public static int getWeight(String name) {
+		switch (name) {
+			case "shape":
+				return 5;
+			case "fill" :
+				return 3;
+			default:
+				return 1;
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to spread the bits of a hash code, so similar
+	 * names and values don't set neighbouring bits
+	****************************************************************/
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		return hash ^ (hash >>> 16);
+	}
+}
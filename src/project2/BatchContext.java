@@ -0,0 +1,166 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*******************************************************************************
+ * The BatchContext holds everything the Agent shares between the problems of
+ * one batch (See Agent.Solve(Collection)).  It is safe to use from several
+ * threads at once.
+ * 
+ * - A symbol table so every attribute name and value is only stored once
+ * - The baseline analysis of each distinct set of example figures (A, B, C)
+ * - The result of each distinct problem, so repeated problems are not rescored
+ *
+ * Everything is keyed by the content of the figures, not the problem names.
+ * Each cache holds a limited number of entries and drops the least recently
+ * used ones, so a context kept for the life of a server (See SolveServer) does
+ * not grow with every distinct problem it is sent.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class BatchContext {
+
+	/*** System property which can be used to change the number of baselines and results cached */
+	public static final String CAPACITY_PROPERTY = "agent.batchCacheEntries";
+
+	/*** Default number of baselines and results cached, the symbol table holds SYMBOLS_PER_ENTRY times more */
+	public static final int DEFAULT_CAPACITY = 4096;
+	private static final int SYMBOLS_PER_ENTRY = 4;
+
+	/*** Symbol table of attribute names and values */
+	private LruCache<String, String> symbols;
+
+	/*** Baseline analysis by the content of the example figures */
+	private LruCache<String, ProblemAnalysis> baselines;
+
+	/*** Results by the content of the whole problem */
+	private LruCache<String, SolveResult> results;
+
+	/*** Cache statistics */
+	private AtomicInteger baselineHits;
+	private AtomicInteger resultHits;
+
+	/***************************************************************
+	 * Default constructor for an empty context with the capacity from
+	 * the agent.batchCacheEntries system property, if it is set
+	****************************************************************/
+	public BatchContext() {
+		this(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+	}
+
+	/***************************************************************
+	 * Constructor for an empty context with values
+	 * @param capacity - the most baselines, and results, cached at once
+	****************************************************************/
+	public BatchContext(int capacity) {
+		symbols = new LruCache<String, String>(capacity * SYMBOLS_PER_ENTRY);
+		baselines = new LruCache<String, ProblemAnalysis>(capacity);
+		results = new LruCache<String, SolveResult>(capacity);
+		baselineHits = new AtomicInteger();
+		resultHits = new AtomicInteger();
+	}
+
+	/***************************************************************
+	 * Get the shared copy of the given String
+	 *
+	 * @param value - the String to look up
+	 * @return String - the copy held by the symbol table
+	****************************************************************/
+	public String intern(String value) {
+		if(value == null) {
+			return null;
+		}
+		String toReturn = symbols.putIfAbsent(value, value);
+		return toReturn == null ? value : toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to build the key for the content of a figure.
+	 * Objects and attributes are sorted so the key does not depend on
+	 * the order they were listed in.
+	 *
+	 * @param figure - the figure to build the key for
+	 * @return String - the key
+	****************************************************************/
+	public String getKey(RavensFigure figure) {
+		List<String> objects = new ArrayList<String>();
+		for(RavensObject obj : figure.getObjects()) {
+			List<String> attrs = new ArrayList<String>();
+			for(RavensAttribute attr : obj.getAttributes()) {
+				attrs.add(attr.getName() + ":" + attr.getValue());
+			}
+			Collections.sort(attrs);
+			objects.add(obj.getName() + attrs);
+		}
+		Collections.sort(objects);
+		return objects.toString();
+	}
+
+	/***************************************************************
+	 * Helper method to build the values map for a figure (See
+	 * MatchUtil.getValuesMap) using the shared symbols
+	 *
+	 * @param figure - the figure to parse
+	 * @return HashMap - object names to attribute names and values
+	****************************************************************/
+	public HashMap<String, HashMap<String, String>> getValuesMap(RavensFigure figure) {
+		HashMap<String, HashMap<String, String>> toReturn = new HashMap<String, HashMap<String, String>>();
+		for(RavensObject obj : figure.getObjects()) {
+			HashMap<String, String> valueMap = new HashMap<String, String>();
+			for(RavensAttribute attr : obj.getAttributes()) {
+				valueMap.put(intern(attr.getName()), intern(attr.getValue()));
+			}
+			toReturn.put(intern(obj.getName()), valueMap);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 *
+	 * Cache lookups, a null result means the value is not cached yet
+	 *
+	****************************************************************/
+	public ProblemAnalysis getBaseline(String key) {
+		ProblemAnalysis toReturn = baselines.get(key);
+		if(toReturn != null) {
+			baselineHits.incrementAndGet();
+		}
+		return toReturn;
+	}
+
+	public void putBaseline(String key, ProblemAnalysis baseline) {
+		baselines.putIfAbsent(key, baseline);
+	}
+
+	public SolveResult getResult(String key) {
+		SolveResult toReturn = results.get(key);
+		if(toReturn != null) {
+			resultHits.incrementAndGet();
+		}
+		return toReturn;
+	}
+
+	public void putResult(String key, SolveResult result) {
+		results.putIfAbsent(key, result);
+	}
+
+	public int getBaselineHits() {
+		return baselineHits.get();
+	}
+
+	public int getResultHits() {
+		return resultHits.get();
+	}
+
+	public int getSymbolCount() {
+		return symbols.size();
+	}
+
+	public long getEvictions() {
+		return symbols.getEvictions() + baselines.getEvictions() + results.getEvictions();
+	}
+}
@@ -0,0 +1,345 @@
+package project2;
+
+import java.util.Arrays;
+
+/*******************************************************************************
+ * A black and white image packed 64 pixels to a long, one row after the other.
+ * Each row starts on a new word so rows can be compared a word at a time.
+ * Bitmaps are used to represent the figures in the problem images, where a set
+ * bit is a dark ("ink") pixel, and are compared using popcounts of the ANDed,
+ * ORed and XORed words.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class Bitmap {
+
+	/*** Size of the image in pixels */
+	private int width;
+	private int height;
+
+	/*** Number of words used for each row */
+	private int stride;
+
+	/*** The packed pixels */
+	private long[] words;
+
+	/***************************************************************
+	 * Constructor for an empty (all white) bitmap
+	 * @param width - width in pixels
+	 * @param height - height in pixels
+	****************************************************************/
+	public Bitmap(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.stride = (width + 63) >>> 6;
+		this.words = new long[stride * height];
+	}
+
+	/***************************************************************
+	 * @return boolean - if the pixel at x,y is set
+	****************************************************************/
+	public boolean get(int x, int y) {
+		return (words[y * stride + (x >>> 6)] & (1L << (x & 63))) != 0;
+	}
+
+	/***************************************************************
+	 * Set the pixel at x,y
+	****************************************************************/
+	public void set(int x, int y) {
+		words[y * stride + (x >>> 6)] |= 1L << (x & 63);
+	}
+
+	/***************************************************************
+	 * @return int - the number of set pixels
+	****************************************************************/
+	public int count() {
+		int toReturn = 0;
+		for(long word : words) {
+			toReturn += Long.bitCount(word);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return int - the number of pixels set in both bitmaps
+	****************************************************************/
+	public int andCount(Bitmap other) {
+		checkSize(other);
+		int toReturn = 0;
+		for(int i = 0; i < words.length; i++) {
+			toReturn += Long.bitCount(words[i] & other.words[i]);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return int - the number of pixels set in either bitmap
+	****************************************************************/
+	public int orCount(Bitmap other) {
+		checkSize(other);
+		int toReturn = 0;
+		for(int i = 0; i < words.length; i++) {
+			toReturn += Long.bitCount(words[i] | other.words[i]);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return int - the number of pixels set in only one bitmap
+	****************************************************************/
+	public int xorCount(Bitmap other) {
+		checkSize(other);
+		int toReturn = 0;
+		for(int i = 0; i < words.length; i++) {
+			toReturn += Long.bitCount(words[i] ^ other.words[i]);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * The Tanimoto (Jaccard) similarity of the two bitmaps, the set
+	 * pixels they share divided by the pixels set in either.
+	 *
+	 * @return double - from 0 (nothing shared) to 1 (identical)
+	****************************************************************/
+	public double tanimoto(Bitmap other) {
+		checkSize(other);
+		int both = 0;
+		int either = 0;
+		for(int i = 0; i < words.length; i++) {
+			both += Long.bitCount(words[i] & other.words[i]);
+			either += Long.bitCount(words[i] | other.words[i]);
+		}
+
+		//Two empty figures are the same figure
+		return either == 0 ? 1.0 : (double) both / either;
+	}
+
+	/***************************************************************
+	 * @return Bitmap - the pixels set in both bitmaps
+	****************************************************************/
+	public Bitmap and(Bitmap other) {
+		checkSize(other);
+		Bitmap toReturn = new Bitmap(width, height);
+		for(int i = 0; i < words.length; i++) {
+			toReturn.words[i] = words[i] & other.words[i];
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return Bitmap - the pixels set in either bitmap
+	****************************************************************/
+	public Bitmap or(Bitmap other) {
+		checkSize(other);
+		Bitmap toReturn = new Bitmap(width, height);
+		for(int i = 0; i < words.length; i++) {
+			toReturn.words[i] = words[i] | other.words[i];
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return Bitmap - the pixels set in this bitmap but not the other
+	****************************************************************/
+	public Bitmap andNot(Bitmap other) {
+		checkSize(other);
+		Bitmap toReturn = new Bitmap(width, height);
+		for(int i = 0; i < words.length; i++) {
+			toReturn.words[i] = words[i] & ~other.words[i];
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Shrink the bitmap by the given factor.  A pixel is set when any
+	 * of the pixels it covers is set, so thin lines are kept.
+	 *
+	 * @param factor - how many times smaller to make the bitmap
+	 * @return Bitmap - the smaller bitmap
+	****************************************************************/
+	public Bitmap downsample(int factor) {
+		if(factor < 1) {
+			throw new IllegalArgumentException("Invalid downsample factor: " + factor);
+		}
+		Bitmap toReturn = new Bitmap((width + factor - 1) / factor, (height + factor - 1) / factor);
+		for(int y = 0; y < height; y++) {
+			for(int w = 0; w < stride; w++) {
+				long word = words[y * stride + w];
+
+				//Only visit the set bits
+				while(word != 0) {
+					int x = (w << 6) + Long.numberOfTrailingZeros(word);
+					toReturn.set(x / factor, y / factor);
+					word &= word - 1;
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return long - the approximate memory used by the bitmap in bytes
+	****************************************************************/
+	public long getSizeInBytes() {
+		return 32 + 16 + 8L * words.length;
+	}
+
+	/***************************************************************
+	 * Rotate the bitmap about its centre.  Multiples of 90 degrees
+	 * are exact, other angles use the nearest pixel.
+	 *
+	 * @param degrees - the angle to rotate by, anticlockwise
+	 * @return Bitmap - the rotated bitmap, the same size as this one
+	****************************************************************/
+	public Bitmap rotate(int degrees) {
+		Bitmap toReturn = new Bitmap(width, height);
+		double radians = Math.toRadians(degrees);
+		double cos = Math.cos(radians);
+		double sin = Math.sin(radians);
+
+		//Exact values so 90 degree turns don't pick up rounding errors
+		if(degrees % 90 == 0) {
+			cos = Math.round(cos);
+			sin = Math.round(sin);
+		}
+
+		//Each pixel takes the value of the pixel that rotates onto it
+		double cx = (width - 1) / 2.0;
+		double cy = (height - 1) / 2.0;
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				int sx = (int) Math.round(cx + (x - cx) * cos - (y - cy) * sin);
+				int sy = (int) Math.round(cy + (x - cx) * sin + (y - cy) * cos);
+				if(sx >= 0 && sy >= 0 && sx < width && sy < height && get(sx, sy)) {
+					toReturn.set(x, y);
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return Bitmap - the bitmap mirrored left to right
+	****************************************************************/
+	public Bitmap flipHorizontal() {
+		Bitmap toReturn = new Bitmap(width, height);
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				if(get(x, y)) {
+					toReturn.set(width - 1 - x, y);
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return Bitmap - the bitmap mirrored top to bottom
+	****************************************************************/
+	public Bitmap flipVertical() {
+		Bitmap toReturn = new Bitmap(width, height);
+		for(int y = 0; y < height; y++) {
+			System.arraycopy(words, y * stride, toReturn.words, (height - 1 - y) * stride, stride);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Move every pixel by dx, dy into the given bitmap.  Pixels moved
+	 * off the edge are lost.  Rows are moved a word at a time, so this
+	 * is cheap enough to try many translations.
+	 *
+	 * @param dx - pixels to move right (negative moves left)
+	 * @param dy - pixels to move down (negative moves up)
+	 * @param into - bitmap of the same size to hold the result
+	 * @return Bitmap - into
+	****************************************************************/
+	public Bitmap shift(int dx, int dy, Bitmap into) {
+		checkSize(into);
+		Arrays.fill(into.words, 0L);
+		int wordShift = Math.abs(dx) >>> 6;
+		int bitShift = Math.abs(dx) & 63;
+		for(int y = Math.max(0, -dy); y < Math.min(height, height - dy); y++) {
+			int from = y * stride;
+			int to = (y + dy) * stride;
+			for(int w = 0; w < stride; w++) {
+				long word = words[from + w];
+				if(word == 0) {
+					continue;
+				}
+
+				//Bit x of the row is bit (x & 63) of word (x >>> 6)
+				int target = dx >= 0 ? w + wordShift : w - wordShift;
+				if(dx >= 0) {
+					if(target < stride) {
+						into.words[to + target] |= word << bitShift;
+					}
+					if(bitShift != 0 && target + 1 < stride) {
+						into.words[to + target + 1] |= word >>> (64 - bitShift);
+					}
+				}else {
+					if(target >= 0) {
+						into.words[to + target] |= word >>> bitShift;
+					}
+					if(bitShift != 0 && target - 1 >= 0) {
+						into.words[to + target - 1] |= word << (64 - bitShift);
+					}
+				}
+			}
+
+			//Clear anything moved past the right edge of the row
+			if((width & 63) != 0) {
+				into.words[to + stride - 1] &= -1L >>> (64 - (width & 63));
+			}
+		}
+		return into;
+	}
+
+	/***************************************************************
+	 * Helper method to make sure two bitmaps can be compared
+	 * @throws IllegalArgumentException if the sizes are different
+	****************************************************************/
+	private void checkSize(Bitmap other) {
+		if(other.width != width || other.height != height) {
+			throw new IllegalArgumentException("Bitmap sizes differ: " + width + "x" + height
+					+ " and " + other.width + "x" + other.height);
+		}
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public long[] getWords() {
+		return words;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof Bitmap)) {
+			return false;
+		}
+		Bitmap other = (Bitmap) obj;
+		return width == other.width && height == other.height && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * width + height) + Arrays.hashCode(words);
+	}
+
+	@Override
+	public String toString() {
+		return "Bitmap [" + width + "x" + height + ", set=" + count() + "]";
+	}
+}
@@ -0,0 +1,409 @@
+package project2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*******************************************************************************
+ * The CheckpointJournal records every problem a run has finished, so a run
+ * which dies partway can be started again without solving those problems again
+ * (See Project2).  It is only ever appended to, one line per problem:
+ *
+ *   crc	set	problem	type	answer	correct answer	scores	nanos	deadline hit
+ *
+ * The CRC32 of the rest of the line lets a line torn by a crash be found and
+ * skipped when the journal is read back.  Tabs, new lines and backslashes in
+ * the values are escaped.
+ *
+ * Lines are collected in a buffer and written in batches.  flush() hands them
+ * to the operating system, which is enough to survive the JVM being killed.
+ * The journal is only forced to disk (fsync) once every syncEvery lines or
+ * syncMillis milliseconds, and when it is closed, so a slow disk doesn't cost
+ * a sync for every problem.
+ *
+ * A journal is not thread safe; the ResultsWriter uses it from its own thread.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class CheckpointJournal implements Closeable {
+
+	/*** Lines written between forcing the journal to disk by default */
+	public static final int DEFAULT_SYNC_EVERY = 64;
+
+	/*** Most milliseconds between forcing the journal to disk by default */
+	public static final long DEFAULT_SYNC_MILLIS = 1000;
+
+	/*** Number of fields on each line, after the CRC */
+	private static final int FIELDS = 8;
+
+	/*** The journal file */
+	private FileChannel channel;
+
+	/*** Lines not yet handed to the operating system */
+	private StringBuilder buffer;
+
+	/*** Lines written since the journal was last forced, and when that was */
+	private int unsynced;
+	private long lastSync;
+
+	/*** When to force the journal to disk */
+	private int syncEvery;
+	private long syncMillis;
+
+	/*** Problems finished by earlier runs, by set and problem name (See getKey) */
+	private Map<String, Entry> completed;
+
+	/*** Lines which were torn or failed their CRC when the journal was read */
+	private int skipped;
+
+	/*** Number of times the journal was forced to disk */
+	private int syncs;
+
+	/***************************************************************
+	 * Constructor which opens the journal, reading the problems
+	 * already finished unless it is started fresh
+	 *
+	 * @param file - the journal file, created if it doesn't exist
+	 * @param fresh - true to throw away what is already in the journal
+	 * @param syncEvery - lines written between forcing it to disk
+	 * @param syncMillis - most milliseconds between forcing it to disk
+	 * @throws IOException if the journal can not be read or opened
+	****************************************************************/
+	public CheckpointJournal(File file, boolean fresh, int syncEvery, long syncMillis) throws IOException {
+		if(syncEvery < 1 || syncMillis < 0) {
+			throw new IllegalArgumentException("Invalid sync settings: " + syncEvery + ", " + syncMillis);
+		}
+		this.syncEvery = syncEvery;
+		this.syncMillis = syncMillis;
+		this.buffer = new StringBuilder();
+		this.completed = new HashMap<String, Entry>();
+		this.lastSync = System.nanoTime();
+
+		long validLength = 0;
+		if(!fresh && file.exists()) {
+			long[] read = read(file, completed);
+			validLength = read[0];
+			skipped = (int) read[1];
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+		//Cut off anything after the last good line so new lines don't join a torn one
+		channel.truncate(validLength);
+		channel.position(validLength);
+	}
+
+	/***************************************************************
+	 * Read the problems recorded in a journal without opening it to
+	 * write, such as the journal of another process
+	 *
+	 * @param file - the journal file
+	 * @return Map<String, Entry> - the recorded problems by key (See
+	 * 							   getKey), empty if there is no journal
+	 * @throws IOException if the journal can not be read
+	****************************************************************/
+	public static Map<String, Entry> load(File file) throws IOException {
+		Map<String, Entry> toReturn = new HashMap<String, Entry>();
+		if(file.exists()) {
+			read(file, toReturn);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Read the lines already in the journal
+	 *
+	 * @param file - the journal file
+	 * @param completed - the map to add the recorded problems to
+	 * @return long[] - the length of the journal up to the end of the
+	 * 				  	last complete line, and the number of lines
+	 * 					skipped
+	****************************************************************/
+	private static long[] read(File file, Map<String, Entry> completed) throws IOException {
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		int start = 0;
+		long skipped = 0;
+		for(int i = 0; i < bytes.length; i++) {
+			if(bytes[i] != '\n') {
+				continue;
+			}
+			Entry entry = parse(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+			if(entry == null) {
+				skipped++;
+			}else {
+				completed.put(getKey(entry.setName, entry.problemName), entry);
+			}
+			start = i + 1;
+		}
+
+		//A line without its new line was torn by a crash
+		if(start < bytes.length) {
+			skipped++;
+		}
+		return new long[] { start, skipped };
+	}
+
+	/***************************************************************
+	 * @return String - the key of a problem in the completed problems
+	****************************************************************/
+	public static String getKey(String setName, String problemName) {
+		return setName + "\t" + problemName;
+	}
+
+	/***************************************************************
+	 * Get the result an earlier run recorded for a problem
+	 *
+	 * @param setName - name of the problem set
+	 * @param problemName - name of the problem
+	 * @return Entry - the recorded result, null if it was not finished
+	****************************************************************/
+	public Entry get(String setName, String problemName) {
+		return completed.get(getKey(setName, problemName));
+	}
+
+	/***************************************************************
+	 * Record a finished problem, forcing the journal to disk once
+	 * enough lines or time have gone by
+	 *
+	 * @param entry - the finished problem
+	 * @throws IOException if the journal can not be written
+	****************************************************************/
+	public void append(Entry entry) throws IOException {
+		StringBuilder line = new StringBuilder();
+		appendField(line, entry.setName);
+		appendField(line, entry.problemName);
+		appendField(line, entry.problemType);
+		appendField(line, entry.givenAnswer);
+		appendField(line, entry.correctAnswer);
+		StringBuilder scores = new StringBuilder();
+		for(int i = 0; i < entry.scores.length; i++) {
+			scores.append(i == 0 ? "" : ",").append(entry.scores[i]);
+		}
+		appendField(line, scores.toString());
+		appendField(line, String.valueOf(entry.nanos));
+		line.append(entry.deadlineHit);
+
+		CRC32 crc = new CRC32();
+		crc.update(line.toString().getBytes(StandardCharsets.UTF_8));
+		buffer.append(Long.toHexString(crc.getValue())).append('\t').append(line).append('\n');
+		unsynced++;
+
+		if(unsynced >= syncEvery || System.nanoTime() - lastSync >= syncMillis * 1000000L) {
+			sync();
+		}
+	}
+
+	/***************************************************************
+	 * Hand the buffered lines to the operating system
+	 *
+	 * @throws IOException if the journal can not be written
+	****************************************************************/
+	public void flush() throws IOException {
+		if(buffer.length() == 0) {
+			return;
+		}
+		ByteBuffer bytes = StandardCharsets.UTF_8.encode(buffer.toString());
+		while(bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		buffer.setLength(0);
+	}
+
+	/***************************************************************
+	 * Write the buffered lines and force the journal to disk
+	 *
+	 * @throws IOException if the journal can not be written
+	****************************************************************/
+	public void sync() throws IOException {
+		flush();
+		if(unsynced > 0) {
+			channel.force(false);
+			syncs++;
+		}
+		unsynced = 0;
+		lastSync = System.nanoTime();
+	}
+
+	/***************************************************************
+	 * Force what is left to disk and close the journal
+	 *
+	 * @throws IOException if the journal can not be written
+	****************************************************************/
+	@Override
+	public void close() throws IOException {
+		if(channel.isOpen()) {
+			try {
+				sync();
+			}finally {
+				channel.close();
+			}
+		}
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public Map<String, Entry> getCompleted() {
+		return Collections.unmodifiableMap(completed);
+	}
+
+	public int getSkipped() {
+		return skipped;
+	}
+
+	public int getSyncs() {
+		return syncs;
+	}
+
+	/***************************************************************
+	 * Helper method to read one line, null if it is torn or corrupt
+	****************************************************************/
+	private static Entry parse(String line) {
+		int tab = line.indexOf('\t');
+		if(tab < 0) {
+			return null;
+		}
+		String rest = line.substring(tab + 1);
+		CRC32 crc = new CRC32();
+		crc.update(rest.getBytes(StandardCharsets.UTF_8));
+		if(!Long.toHexString(crc.getValue()).equals(line.substring(0, tab))) {
+			return null;
+		}
+
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		for(int i = 0; i < rest.length(); i++) {
+			char c = rest.charAt(i);
+			if(c == '\t') {
+				fields.add(field.toString());
+				field.setLength(0);
+			}else if(c == '\\' && i + 1 < rest.length()) {
+				char next = rest.charAt(++i);
+				field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			}else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		if(fields.size() != FIELDS) {
+			return null;
+		}
+
+		try {
+			String[] split = fields.get(5).isEmpty() ? new String[0] : fields.get(5).split(",");
+			int[] scores = new int[split.length];
+			for(int i = 0; i < split.length; i++) {
+				scores[i] = Integer.parseInt(split[i]);
+			}
+			return new Entry(fields.get(0), fields.get(1), fields.get(2), fields.get(3), fields.get(4), scores,
+					Long.parseLong(fields.get(6)), Boolean.parseBoolean(fields.get(7)));
+		}catch(NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to append an escaped value and a tab
+	****************************************************************/
+	private static void appendField(StringBuilder line, String value) {
+		String text = value == null ? "" : value;
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch(c) {
+				case '\t':
+					line.append("\\t");
+					break;
+				case '\n':
+					line.append("\\n");
+					break;
+				case '\r':
+					line.append("\\r");
+					break;
+				case '\\':
+					line.append("\\\\");
+					break;
+				default:
+					line.append(c);
+					break;
+			}
+		}
+		line.append('\t');
+	}
+
+	/*******************************************************************************
+	 * The recorded result of one finished problem
+	 *******************************************************************************/
+	public static class Entry {
+		private String setName;
+		private String problemName;
+		private String problemType;
+		private String givenAnswer;
+		private String correctAnswer;
+		private int[] scores;
+		private long nanos;
+		private boolean deadlineHit;
+
+		public Entry(String setName, String problemName, String problemType, String givenAnswer, String correctAnswer,
+				int[] scores, long nanos, boolean deadlineHit) {
+			this.setName = setName;
+			this.problemName = problemName;
+			this.problemType = problemType;
+			this.givenAnswer = givenAnswer;
+			this.correctAnswer = correctAnswer;
+			this.scores = scores;
+			this.nanos = nanos;
+			this.deadlineHit = deadlineHit;
+		}
+
+		public String getSetName() {
+			return setName;
+		}
+
+		public String getProblemName() {
+			return problemName;
+		}
+
+		public String getProblemType() {
+			return problemType;
+		}
+
+		public String getGivenAnswer() {
+			return givenAnswer;
+		}
+
+		public String getCorrectAnswer() {
+			return correctAnswer;
+		}
+
+		public int[] getScores() {
+			return scores;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public boolean isDeadlineHit() {
+			return deadlineHit;
+		}
+
+		/***************************************************************
+		 * @return SolveResult - the result the entry was recorded from
+		****************************************************************/
+		public SolveResult toResult() {
+			return new SolveResult(problemName, givenAnswer, scores, deadlineHit);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*******************************************************************************
+ * ColourRefinement gives the objects of two figures Weisfeiler-Lehman style
+ * colours, so MatchUtil only has to compare objects which could really be the
+ * same object.  In the first round an object's colour is its attributes,
+ * leaving out the relations.  In each later round an object's colour is its
+ * colour from the round before together with the colours of the objects it is
+ * related to, and the objects related to it, for each relation (See
+ * RelationGraph).  Both figures share one palette each round, so equal colours
+ * mean the same thing in either figure.  The rounds stop once they no longer
+ * split any colour, or after MAX_ROUNDS.
+ *
+ * Objects which change between the figures change colour, and so do the
+ * objects related to them in later rounds.  So an object of the first figure
+ * uses the last round in which the second figure still has as many objects of
+ * its colour as the first, and the objects of that colour are its candidates.
+ * When a colour has more objects in the first figure in the next round, one of
+ * them must have changed, into one of the objects the second figure has more of
+ * in that round.  So those objects also have the spare objects of their colour
+ * in the round before as candidates, or the spare objects of the whole figure
+ * when not even their attributes are found as often in the second figure.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ColourRefinement {
+
+	/*** Most rounds of refinement after the first colouring */
+	public static final int MAX_ROUNDS = 3;
+
+	/*** Colours of each object by round, and id in its figure */
+	private List<int[]> firstColours;
+	private List<int[]> secondColours;
+
+	/*** Round each object of the first figure finds its candidates in, -1 for every object */
+	private int[] depth;
+
+	/*** Whether each object of the second figure has a colour it has more of, by round */
+	private List<boolean[]> spare;
+
+	/***************************************************************
+	 * Constructor which colours the objects of both figures
+	 *
+	 * @param first - relations of the first figure
+	 * @param second - relations of the second figure
+	****************************************************************/
+	public ColourRefinement(RelationGraph first, RelationGraph second) {
+		firstColours = new ArrayList<int[]>();
+		secondColours = new ArrayList<int[]>();
+
+		Map<String, Integer> palette = new HashMap<String, Integer>();
+		firstColours.add(colourAttributes(first, palette));
+		secondColours.add(colourAttributes(second, palette));
+		int colours = palette.size();
+
+		//A refined colour includes the colour before it, so colours only ever split
+		for(int round = 1; round <= MAX_ROUNDS; round++) {
+			palette.clear();
+			int[] refinedFirst = refine(first, firstColours.get(round - 1), palette);
+			int[] refinedSecond = refine(second, secondColours.get(round - 1), palette);
+			if(palette.size() <= colours) {
+				break;
+			}
+			firstColours.add(refinedFirst);
+			secondColours.add(refinedSecond);
+			colours = palette.size();
+		}
+
+		//Find the last round the second figure has every object of each object's colour, and its spare objects
+		depth = new int[first.size()];
+		Arrays.fill(depth, -1);
+		spare = new ArrayList<boolean[]>();
+		for(int round = 0; round < firstColours.size(); round++) {
+			int[] firstCounts = new int[colours];
+			int[] secondCounts = new int[colours];
+			for(int colour : firstColours.get(round)) {
+				firstCounts[colour]++;
+			}
+			for(int colour : secondColours.get(round)) {
+				secondCounts[colour]++;
+			}
+			boolean[] spareInRound = new boolean[second.size()];
+			int[] secondColour = secondColours.get(round);
+			for(int id = 0; id < spareInRound.length; id++) {
+				spareInRound[id] = secondCounts[secondColour[id]] > firstCounts[secondColour[id]];
+			}
+			spare.add(spareInRound);
+			int[] colour = firstColours.get(round);
+			for(int id = 0; id < depth.length; id++) {
+				if(secondCounts[colour[id]] >= firstCounts[colour[id]] && depth[id] == round - 1) {
+					depth[id] = round;
+				}
+			}
+		}
+	}
+
+	/***************************************************************
+	 * Test if an object of the second figure is a candidate match
+	 * for an object of the first
+	 *
+	 * @param firstId - the id of the object in the first figure
+	 * @param secondId - the id of the object in the second figure
+	 * @return boolean - true if the objects should be compared
+	****************************************************************/
+	public boolean isCandidate(int firstId, int secondId) {
+		int round = depth[firstId];
+		if(round >= 0 && firstColours.get(round)[firstId] != secondColours.get(round)[secondId]) {
+			return false;
+		}
+
+		//The colour is short in the next round, so the object may have changed into a spare one
+		int next = round + 1;
+		return next == firstColours.size() || spare.get(next)[secondId]
+				|| firstColours.get(next)[firstId] == secondColours.get(next)[secondId];
+	}
+
+	/***************************************************************
+	 * @return int - the number of rounds of refinement which split a
+	 * 				 colour, not counting the first colouring
+	****************************************************************/
+	public int getRounds() {
+		return firstColours.size() - 1;
+	}
+
+	/***************************************************************
+	 * Helper method to colour each object by its attributes, leaving
+	 * out the relations since they name objects of its own figure
+	****************************************************************/
+	private static int[] colourAttributes(RelationGraph graph, Map<String, Integer> palette) {
+		int[] toReturn = new int[graph.size()];
+		List<String> names = new ArrayList<String>();
+		StringBuilder signature = new StringBuilder();
+		for(int id = 0; id < toReturn.length; id++) {
+			HashMap<String, String> attributes = graph.getAttributes(id);
+			signature.setLength(0);
+			if(attributes != null) {
+				names.clear();
+				names.addAll(attributes.keySet());
+				names.removeAll(Arrays.asList(RelationScorer.RELATIONS));
+				String[] sorted = names.toArray(new String[names.size()]);
+				Arrays.sort(sorted);
+				for(String name : sorted) {
+					signature.append(name).append('=').append(attributes.get(name)).append(';');
+				}
+			}else {
+				signature.append("null");
+			}
+			toReturn[id] = getColour(signature.toString(), palette);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to run one round of refinement, the colour of an
+	 * object and the sorted colours of its neighbours for each relation
+	 * in each direction
+	****************************************************************/
+	private static int[] refine(RelationGraph graph, int[] colours, Map<String, Integer> palette) {
+		int size = graph.size();
+		int relations = RelationScorer.RELATIONS.length;
+
+		//Collect the colours of the objects related to each object, in both directions
+		List<List<Integer>> neighbours = new ArrayList<List<Integer>>(size * relations * 2);
+		for(int i = 0; i < size * relations * 2; i++) {
+			neighbours.add(new ArrayList<Integer>(2));
+		}
+		for(int id = 0; id < size; id++) {
+			for(int relation = 0; relation < relations; relation++) {
+				int[] targets = graph.getEdges(id, relation);
+				if(targets == null) {
+					continue;
+				}
+				for(int target : targets) {
+					neighbours.get((id * relations + relation) * 2).add(Integer.valueOf(colours[target]));
+					neighbours.get((target * relations + relation) * 2 + 1).add(Integer.valueOf(colours[id]));
+				}
+			}
+		}
+
+		int[] toReturn = new int[size];
+		StringBuilder signature = new StringBuilder();
+		for(int id = 0; id < size; id++) {
+			signature.setLength(0);
+			signature.append(colours[id]);
+			for(int i = 0; i < relations * 2; i++) {
+				List<Integer> related = neighbours.get(id * relations * 2 + i);
+				Collections.sort(related);
+				signature.append(i % 2 == 0 ? '|' : '/').append(related);
+			}
+			toReturn[id] = getColour(signature.toString(), palette);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to get the colour of a signature, adding it to
+	 * the palette if it is new
+	****************************************************************/
+	private static int getColour(String signature, Map<String, Integer> palette) {
+		Integer toReturn = palette.get(signature);
+		if(toReturn == null) {
+			toReturn = Integer.valueOf(palette.size());
+			palette.put(signature, toReturn);
+		}
+		return toReturn.intValue();
+	}
+}
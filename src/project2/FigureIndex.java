@@ -0,0 +1,277 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/*******************************************************************************
+ * The FigureIndex finds figures which look alike without comparing every pair
+ * of figures.  Each figure is given a 64 bit perceptual hash (See hash) where
+ * figures that look alike have hashes that differ in only a few bits, and the
+ * hashes are kept in a BK-tree.  A BK-tree stores each hash under its parent
+ * by the Hamming distance between them, so the triangle inequality lets a
+ * search skip every branch that can't be within the search distance.
+ *
+ * It is a tool for finding duplicate figures across the whole corpus; the
+ * solvers don't use it, since each problem only has six answers to compare.
+ * Run as a program it indexes the figures in every problem image and reports
+ * the groups of duplicate figures, with the hashes compared against comparing
+ * every pair of figures.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class FigureIndex {
+
+	/*** Figures with hashes this close are reported as duplicates */
+	public static final int DUPLICATE_DISTANCE = 2;
+
+	/*** Size of the grid the hash is taken from, one more column than bits in a row */
+	private static final int HASH_COLUMNS = 9;
+	private static final int HASH_ROWS = 8;
+
+	/*** Root of the BK-tree, null while the index is empty */
+	private Node root;
+
+	/*** Number of figures in the index */
+	private int size;
+
+	/*** Number of hashes compared by searches, for reporting */
+	private long comparisons;
+
+	/***************************************************************
+	 * Default constructor for an empty index
+	****************************************************************/
+	public FigureIndex() {
+
+	}
+
+	/***************************************************************
+	 * The difference hash (dHash) of a figure.  The figure is split
+	 * into a 9x8 grid, and each bit says if a cell has more ink than
+	 * the cell to its right.  Small changes to a figure only change
+	 * a few cells, so only flip a few bits.
+	 *
+	 * @param figure - the figure to hash
+	 * @return long - the 64 bit hash
+	****************************************************************/
+	public static long hash(Bitmap figure) {
+		int[] ink = new int[HASH_COLUMNS * HASH_ROWS];
+		long[] words = figure.getWords();
+		int stride = (figure.getWidth() + 63) >>> 6;
+		for(int y = 0; y < figure.getHeight(); y++) {
+			int row = y * HASH_ROWS / figure.getHeight() * HASH_COLUMNS;
+			for(int w = 0; w < stride; w++) {
+				long word = words[y * stride + w];
+
+				//Only visit the set bits
+				while(word != 0) {
+					int x = (w << 6) + Long.numberOfTrailingZeros(word);
+					ink[row + x * HASH_COLUMNS / figure.getWidth()]++;
+					word &= word - 1;
+				}
+			}
+		}
+
+		long toReturn = 0;
+		for(int r = 0; r < HASH_ROWS; r++) {
+			for(int c = 0; c < HASH_COLUMNS - 1; c++) {
+				toReturn <<= 1;
+				if(ink[r * HASH_COLUMNS + c] > ink[r * HASH_COLUMNS + c + 1]) {
+					toReturn |= 1;
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return int - the number of bits which differ between two hashes
+	****************************************************************/
+	public static int distance(long first, long second) {
+		return Long.bitCount(first ^ second);
+	}
+
+	/***************************************************************
+	 * Add a figure to the index
+	 *
+	 * @param problemName - name of the problem the figure is from
+	 * @param figureName - name of the figure in the problem
+	 * @param figure - the figure
+	 * @return Entry - the entry added for the figure
+	****************************************************************/
+	public Entry add(String problemName, String figureName, Bitmap figure) {
+		Entry toReturn = new Entry(problemName, figureName, figure, hash(figure));
+		size++;
+		if(root == null) {
+			root = new Node(toReturn);
+			return toReturn;
+		}
+
+		//Walk down the branches by distance until there is no branch for this distance
+		Node node = root;
+		while(true) {
+			int d = distance(node.hash, toReturn.hash);
+			if(d == 0) {
+				node.entries.add(toReturn);
+				return toReturn;
+			}
+			Node child = node.children.get(d);
+			if(child == null) {
+				node.children.put(d, new Node(toReturn));
+				return toReturn;
+			}
+			node = child;
+		}
+	}
+
+	/***************************************************************
+	 * Find every figure whose hash is within the given distance
+	 *
+	 * @param hash - the hash to search for
+	 * @param maxDistance - the largest distance to include
+	 * @return List<Entry> - the figures found, in no particular order
+	****************************************************************/
+	public List<Entry> search(long hash, int maxDistance) {
+		List<Entry> toReturn = new ArrayList<Entry>();
+		if(root == null) {
+			return toReturn;
+		}
+
+		List<Node> toVisit = new ArrayList<Node>();
+		toVisit.add(root);
+		while(!toVisit.isEmpty()) {
+			Node node = toVisit.remove(toVisit.size() - 1);
+			int d = distance(node.hash, hash);
+			comparisons++;
+			if(d <= maxDistance) {
+				toReturn.addAll(node.entries);
+			}
+
+			//Only branches within maxDistance of d can hold a match
+			for(int branch = Math.max(1, d - maxDistance); branch <= d + maxDistance; branch++) {
+				Node child = node.children.get(branch);
+				if(child != null) {
+					toVisit.add(child);
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public int size() {
+		return size;
+	}
+
+	public long getComparisons() {
+		return comparisons;
+	}
+
+	/*******************************************************************************
+	 * Index every figure in the problem images and report the duplicate figures
+	 * found across the corpus.  The first argument can be used to read the
+	 * images from another folder.
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		File folder = new File(args.length > 0 ? args[0] : ImageUtil.IMAGES_FOLDER);
+		List<RavensProblem> verbal = new ArrayList<RavensProblem>();
+		List<ProblemImage> problems = VisualSolver.loadProblems(folder, new ImageCache(), verbal);
+
+		FigureIndex index = new FigureIndex();
+		List<Entry> entries = new ArrayList<Entry>();
+		for(int i = 0; i < problems.size(); i++) {
+			for(String figureName : new String[] { "A", "B", "C", "1", "2", "3", "4", "5", "6" }) {
+				entries.add(index.add(verbal.get(i).getName(), figureName, problems.get(i).getFigure(figureName)));
+			}
+		}
+
+		//Report each group of duplicates once, from its first figure
+		System.out.println("Duplicate figures (hash distance <= " + DUPLICATE_DISTANCE + "):");
+		HashSet<Entry> reported = new HashSet<Entry>();
+		int groups = 0;
+		int duplicates = 0;
+		for(Entry entry : entries) {
+			if(reported.contains(entry)) {
+				continue;
+			}
+			List<Entry> group = index.search(entry.hash, DUPLICATE_DISTANCE);
+			if(group.size() > 1) {
+				groups++;
+				duplicates += group.size() - 1;
+				StringBuilder line = new StringBuilder();
+				for(Entry duplicate : group) {
+					reported.add(duplicate);
+					line.append(line.length() == 0 ? "  " : ", ").append(duplicate);
+				}
+				System.out.println(line);
+			}
+		}
+
+		//Comparing every pair of figures once
+		long pairwise = (long) entries.size() * (entries.size() - 1) / 2;
+		System.out.println(String.format("figures=%d, duplicate groups=%d, duplicates=%d, comparisons=%d (pairwise %d)",
+				index.size(), groups, duplicates, index.getComparisons(), pairwise));
+	}
+
+	/*******************************************************************************
+	 * A figure in the index and where it came from
+	 *******************************************************************************/
+	public static class Entry {
+		private String problemName;
+		private String figureName;
+		private Bitmap figure;
+		private long hash;
+
+		private Entry(String problemName, String figureName, Bitmap figure, long hash) {
+			this.problemName = problemName;
+			this.figureName = figureName;
+			this.figure = figure;
+			this.hash = hash;
+		}
+
+		public String getProblemName() {
+			return problemName;
+		}
+
+		public String getFigureName() {
+			return figureName;
+		}
+
+		public Bitmap getFigure() {
+			return figure;
+		}
+
+		public long getHash() {
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			return problemName + ":" + figureName;
+		}
+	}
+
+	/*******************************************************************************
+	 * A node of the BK-tree: every figure with one hash, and the child nodes by
+	 * their distance from that hash
+	 *******************************************************************************/
+	private static class Node {
+		private long hash;
+		private List<Entry> entries;
+		private HashMap<Integer, Node> children;
+
+		private Node(Entry entry) {
+			this.hash = entry.hash;
+			this.entries = new ArrayList<Entry>();
+			this.entries.add(entry);
+			this.children = new HashMap<Integer, Node>();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package project2;
+
+import java.util.HashMap;
+
+/*******************************************************************************
+ * Scorer for the Frames approach.  The possible answer is compared to the
+ * Frame which was calculated to be the answer using Means End Analysis.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class FrameScorer implements Scorer {
+
+	/*** Name used to configure this scorer */
+	public static final String NAME = "frames";
+
+	/*** Utility class used to complete the Frame calculations*/
+	private FrameUtil frameUtil;
+
+	/***************************************************************
+	 * Default constructor
+	****************************************************************/
+	public FrameScorer() {
+		frameUtil = new FrameUtil();
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public int getCost() {
+		return 1;
+	}
+
+	@Override
+	public int score(ProblemAnalysis analysis, HashMap<String, HashMap<String, String>> answerValues) {
+		return frameUtil.compareFrames(answerValues, analysis.getCalculatedFrameValues());
+	}
+
+	@Override
+	public int maxScore(ProblemAnalysis analysis, HashMap<String, HashMap<String, String>> answerValues) {
+		return frameUtil.maxFrameScore(answerValues, analysis.getCalculatedFrameValues());
+	}
+}
@@ -150,6 +150,11 @@ public class FrameUtil {
     		//Get the attributes and their values for this object in each figure
     		HashMap<String, String> firstFigObjs = figureAValues.get(objectName);
     		
+    		//Objects left without a match when the figure was matched have no values
+    		if(firstFigObjs == null) {
+    			continue;
+    		}
+    		
     			
     			//Create a Result object to hold the difference between the two objects
 	    		FrameFiller filler = new FrameFiller();
@@ -339,6 +344,32 @@ public class FrameUtil {
 			//Will always be higher because it has more attributes to test. 
 			return score * 500;
 		}
+		/**************************************************************************************************
+		 * Calculate a score compareFrames will never exceed for the two given frames.  Every object
+		 * in the first frame can at most match each attribute of every object in the second frame
+		 * with the highest weighted score.
+		 *
+	     * @param first - values of the first frame
+	     * @param second - values of the second frame
+		 *
+	     * @return int - The upper bound for the similarity score of the two 
+	     **************************************************************************************************/
+		public int maxFrameScore(HashMap<String, HashMap<String, String>> first,
+				HashMap<String, HashMap<String, String>> second) {
+			
+			long score = 0;
+			for(HashMap<String, String> firstFillers : first.values()) {
+				for(HashMap<String, String> secondFillers : second.values()) {
+					if(firstFillers != null && secondFillers != null) {
+						
+						//Each attribute name can only match once per object, angle is worth the most
+						score += Math.min(firstFillers.size(), secondFillers.size()) * 10;
+					}
+				}
+			}
+			
+			return (int) Math.min(Integer.MAX_VALUE, score * 500);
+		}
 		/****************************************************************************
 		 * Given two RavenFigure objects determine the differences that exist
 		 * between the objects in each figure. The result is a list of "Result"
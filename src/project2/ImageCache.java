@@ -0,0 +1,214 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/*******************************************************************************
+ * The ImageCache holds problem images which have already been decoded, cut
+ * into figures and thresholded (See ImageUtil), along with copies of every
+ * figure at each of the smaller RESOLUTIONS.  Decoding a PNG takes far longer
+ * than solving the problem in it, so an image is only decoded again when the
+ * file has changed.
+ *
+ * Images are keyed by their path, modification time and length, so a cached
+ * image is returned without reading the file at all.  The least recently used images are dropped once the cache holds
+ * more than its memory budget.  Figures which are pixel for pixel the same
+ * (answers repeat from one problem to the next) share one Bitmap, which also
+ * lets them share their cached TransformUtil variants.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ImageCache {
+
+	/*** Widths of the smaller copies kept for every figure, every size the solvers ask for */
+	public static final int[] RESOLUTIONS = { 64, PyramidMatcher.COARSE_SIZE };
+
+	/*** System property which can be used to change the memory budget in bytes */
+	public static final String BUDGET_PROPERTY = "agent.imageCacheBytes";
+
+	/*** Default memory budget in bytes */
+	public static final long DEFAULT_BUDGET = 16L * 1024 * 1024;
+
+	/*** Cached images, least recently used first */
+	private LinkedHashMap<String, ProblemImage> images;
+
+	/*** One copy of every distinct figure, so identical figures are shared */
+	private WeakHashMap<Bitmap, WeakReference<Bitmap>> figures;
+
+	/*** Used to decode and cut up images */
+	private ImageUtil imageUtil;
+
+	/*** Memory budget and the memory used by the cached images, in bytes */
+	private long budget;
+	private long used;
+
+	/*** Counters for reporting */
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long sharedFigures;
+
+	/***************************************************************
+	 * Constructor for a cache with the budget from the
+	 * agent.imageCacheBytes system property, if it is set
+	****************************************************************/
+	public ImageCache() {
+		this(Long.getLong(BUDGET_PROPERTY, DEFAULT_BUDGET));
+	}
+
+	/***************************************************************
+	 * Constructor with values
+	 * @param budget - the most memory the cached images can use, in bytes
+	****************************************************************/
+	public ImageCache(long budget) {
+		if(budget < 0) {
+			throw new IllegalArgumentException("Budget can not be negative: " + budget);
+		}
+		this.budget = budget;
+		this.images = new LinkedHashMap<String, ProblemImage>(16, 0.75f, true);
+		this.figures = new WeakHashMap<Bitmap, WeakReference<Bitmap>>();
+		this.imageUtil = new ImageUtil();
+	}
+
+	/***************************************************************
+	 * Get the problem image in the file, decoding it only if it is
+	 * not already cached
+	 *
+	 * @param file - the image file
+	 * @return ProblemImage - the figures of the problem
+	 * @throws IOException if the image can not be read or does not
+	 * 					   hold a problem
+	****************************************************************/
+	public ProblemImage load(File file) throws IOException {
+		String key = file.getCanonicalPath() + "|" + file.lastModified() + "|" + file.length();
+
+		synchronized(this) {
+			ProblemImage toReturn = images.get(key);
+			if(toReturn != null) {
+				hits++;
+				return toReturn;
+			}
+			misses++;
+		}
+
+		//Decode outside the lock, two threads may decode the same image but only one is kept
+		ProblemImage decoded = imageUtil.loadProblemImage(file);
+		synchronized(this) {
+			ProblemImage toReturn = images.get(key);
+			if(toReturn == null) {
+				toReturn = share(decoded);
+				images.put(key, toReturn);
+				used += toReturn.getSizeInBytes();
+				evict();
+			}
+			return toReturn;
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to swap each figure for an identical one already
+	 * seen, and to make the smaller copies of each figure
+	 *
+	 * @param image - the newly decoded image
+	 * @return ProblemImage - the same image with shared figures
+	****************************************************************/
+	private ProblemImage share(ProblemImage image) {
+		for(Map.Entry<String, Bitmap> entry : image.getFigures().entrySet()) {
+			Bitmap figure = intern(entry.getValue());
+			entry.setValue(figure);
+			for(int size : RESOLUTIONS) {
+				image.setSmallerFigure(entry.getKey(), intern(figure.downsample(figure.getWidth() / size)));
+			}
+		}
+		return image;
+	}
+
+	/***************************************************************
+	 * Helper method to get the shared copy of a figure
+	****************************************************************/
+	private Bitmap intern(Bitmap figure) {
+		WeakReference<Bitmap> shared = figures.get(figure);
+		Bitmap toReturn = shared == null ? null : shared.get();
+		if(toReturn == null) {
+			figures.put(figure, new WeakReference<Bitmap>(figure));
+			toReturn = figure;
+		}else {
+			sharedFigures++;
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to drop the least recently used images until the
+	 * cache is back under its budget
+	****************************************************************/
+	private void evict() {
+		Iterator<ProblemImage> iter = images.values().iterator();
+		while(used > budget && iter.hasNext()) {
+			used -= iter.next().getSizeInBytes();
+			iter.remove();
+			evictions++;
+		}
+	}
+
+	/***************************************************************
+	 * Empty the cache, the counters are kept
+	****************************************************************/
+	public synchronized void clear() {
+		images.clear();
+		figures.clear();
+		used = 0;
+	}
+
+	/***************************************************************
+	 * @return double - the fraction of loads which were cached
+	****************************************************************/
+	public synchronized double getHitRate() {
+		long loads = hits + misses;
+		return loads == 0 ? 0.0 : (double) hits / loads;
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getSharedFigures() {
+		return sharedFigures;
+	}
+
+	public synchronized long getUsed() {
+		return used;
+	}
+
+	public synchronized int size() {
+		return images.size();
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("ImageCache [images=%d, used=%d/%d bytes, hits=%d, misses=%d, hit rate=%.3f, evictions=%d, shared figures=%d]",
+				images.size(), used, budget, hits, misses, getHitRate(), evictions, sharedFigures);
+	}
+}
@@ -0,0 +1,300 @@
+package project2;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/*******************************************************************************
+ * ImageUtil is a Service class which reads the problem images under
+ * "Problem (Images)" into Bitmaps.  Every image holds a whole problem: the
+ * figures are drawn inside light blue boxes, with the matrix (A, B, C and the
+ * missing figure) on one side and the six answers on the other.  The boxes are
+ * found by their colour, and the inside of each box is thresholded and scaled
+ * down into a square Bitmap.
+ *
+ * @author Craig Graham
+ *******************************************************************************/
+public class ImageUtil {
+
+	/*** Width and height of the figure Bitmaps */
+	public static final int FIGURE_SIZE = 128;
+
+	/*** Folder the problem images are read from by default */
+	public static final String IMAGES_FOLDER = "Problem (Images)";
+
+	/*** Pixels darker than this are ink */
+	private static final int INK_LEVEL = 128;
+
+	/*** The smallest a box can be, which skips the question mark in the missing figure */
+	private static final int MIN_BOX_SIZE = 100;
+
+	/*** Pixels to skip inside the box so the box itself is not part of the figure */
+	private static final int BOX_INSET = 5;
+
+	/*******************************************************************************
+	 * Default empty constructor.
+	 *******************************************************************************/
+	public ImageUtil() {
+
+	}
+
+	/*******************************************************************************
+	 * Read a problem image and cut it into its figures
+	 *
+	 * @param file - the image file
+	 * @return ProblemImage - the figures of the problem
+	 * @throws IOException if the image can not be read or does not hold a problem
+	 *******************************************************************************/
+	public ProblemImage loadProblemImage(File file) throws IOException {
+		BufferedImage image = ImageIO.read(file);
+		if(image == null) {
+			throw new IOException("Not an image: " + file);
+		}
+		return readProblemImage(file.getName(), image);
+	}
+
+	/*******************************************************************************
+	 * Cut a decoded problem image into its figures
+	 *
+	 * @param name - name of the problem image
+	 * @param image - the decoded image
+	 * @return ProblemImage - the figures of the problem
+	 * @throws IOException if the image does not hold a problem
+	 *******************************************************************************/
+	public ProblemImage readProblemImage(String name, BufferedImage image) throws IOException {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+		List<Rectangle> boxes = findBoxes(pixels, width, height);
+		if(boxes.size() != 10) {
+			throw new IOException("Expected 10 figures but found " + boxes.size() + " in " + name);
+		}
+
+		//2x1 problems have all six answers in one row under the matrix,
+		//2x2 problems have them in two columns beside the matrix
+		Map<String, Rectangle> named = new HashMap<String, Rectangle>();
+		String problemType;
+		List<Rectangle> byY = sorted(boxes, true);
+		if(Math.abs(byY.get(4).y - byY.get(9).y) < MIN_BOX_SIZE) {
+			problemType = "2x1";
+			List<Rectangle> matrix = sorted(byY.subList(0, 4), false);
+			List<Rectangle> answers = sorted(byY.subList(4, 10), false);
+			nameBoxes(named, matrix, "A", "B", "C", "#");
+			nameBoxes(named, answers, "1", "2", "3", "4", "5", "6");
+		}else {
+			problemType = "2x2";
+			List<Rectangle> byX = sorted(boxes, false);
+			List<Rectangle> matrix = byX.subList(0, 4);
+			List<Rectangle> answers = byX.subList(4, 10);
+
+			//Read the matrix row by row and the answers column by column
+			List<Rectangle> matrixTop = sorted(sorted(matrix, true).subList(0, 2), false);
+			List<Rectangle> matrixBottom = sorted(sorted(matrix, true).subList(2, 4), false);
+			nameBoxes(named, matrixTop, "A", "B");
+			nameBoxes(named, matrixBottom, "C", "#");
+			nameBoxes(named, sorted(answers.subList(0, 3), true), "1", "2", "3");
+			nameBoxes(named, sorted(answers.subList(3, 6), true), "4", "5", "6");
+		}
+
+		ProblemImage toReturn = new ProblemImage(name, problemType);
+		for(String figureName : named.keySet()) {
+			if(!figureName.equals("#")) {
+				toReturn.setFigure(figureName, threshold(pixels, width, named.get(figureName), FIGURE_SIZE));
+			}
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Threshold the inside of a box and scale it down to a square Bitmap.  A pixel
+	 * in the Bitmap is set when any of the pixels it covers is ink, so thin lines
+	 * are not lost when the figure is made smaller.
+	 *
+	 * @param pixels - the RGB pixels of the image
+	 * @param width - width of the image
+	 * @param box - the box around the figure
+	 * @param size - width and height of the Bitmap
+	 * @return Bitmap - the figure
+	 *******************************************************************************/
+	public Bitmap threshold(int[] pixels, int width, Rectangle box, int size) {
+		Bitmap toReturn = new Bitmap(size, size);
+		int left = box.x + BOX_INSET;
+		int top = box.y + BOX_INSET;
+		int innerWidth = Math.max(1, box.width - 2 * BOX_INSET);
+		int innerHeight = Math.max(1, box.height - 2 * BOX_INSET);
+		for(int y = 0; y < innerHeight; y++) {
+			int row = (top + y) * width;
+			int by = y * size / innerHeight;
+			for(int x = 0; x < innerWidth; x++) {
+				if(isInk(pixels[row + left + x])) {
+					toReturn.set(x * size / innerWidth, by);
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Build an index of every problem image under the given folder, keyed by the
+	 * squashed name of the problem (See getImageKey).  The name is taken from the
+	 * set folder and the number at the end of the image name, since a few of the
+	 * images are named after the wrong set.
+	 *
+	 * @param folder - the images folder, with one folder per problem set
+	 * @return Map<String, File> - the image for each problem
+	 *******************************************************************************/
+	public Map<String, File> indexImages(File folder) {
+		Map<String, File> toReturn = new HashMap<String, File>();
+		File[] setFolders = folder.listFiles();
+		if(setFolders != null) {
+			for(File setFolder : setFolders) {
+				File[] images = setFolder.listFiles();
+				if(images == null) {
+					continue;
+				}
+
+				//"2x1 Basic Problems" holds "2x1 Basic Problem 01" and so on
+				String setName = setFolder.getName();
+				if(setName.endsWith("s")) {
+					setName = setName.substring(0, setName.length() - 1);
+				}
+				for(File image : images) {
+					String imageName = image.getName();
+					int dot = imageName.lastIndexOf('.');
+					if(dot > 0 && imageName.substring(dot + 1).equalsIgnoreCase("png")) {
+						int number = dot;
+						while(number > 0 && Character.isDigit(imageName.charAt(number - 1))) {
+							number--;
+						}
+						toReturn.put(getImageKey(setName + imageName.substring(number, dot)), image);
+					}
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Squash a problem or image name so the two can be matched.  For example
+	 * "2x2 Classmates' Problem 01" and "2x2 Classmates Problem01" are both
+	 * "2x2classmatesproblem01".
+	 *
+	 * @param name - the problem or image name
+	 * @return String - the squashed name
+	 *******************************************************************************/
+	public static String getImageKey(String name) {
+		StringBuilder toReturn = new StringBuilder();
+		for(char c : name.toCharArray()) {
+			if(Character.isLetterOrDigit(c)) {
+				toReturn.append(Character.toLowerCase(c));
+			}
+		}
+		return toReturn.toString();
+	}
+
+	/*******************************************************************************
+	 * Find the light blue boxes the figures are drawn in.  Each box is one
+	 * connected group of box coloured pixels, so the boxes are found by
+	 * flood filling those pixels and keeping the large groups.
+	 *
+	 * @param pixels - the RGB pixels of the image
+	 * @param width - width of the image
+	 * @param height - height of the image
+	 * @return List<Rectangle> - the bounds of each box
+	 *******************************************************************************/
+	private List<Rectangle> findBoxes(int[] pixels, int width, int height) {
+		List<Rectangle> toReturn = new ArrayList<Rectangle>();
+		boolean[] visited = new boolean[pixels.length];
+		int[] stack = new int[pixels.length];
+		for(int start = 0; start < pixels.length; start++) {
+			if(visited[start] || !isBox(pixels[start])) {
+				continue;
+			}
+
+			//Flood fill the group of box pixels and track its bounds
+			int minX = width, minY = height, maxX = 0, maxY = 0;
+			int top = 0;
+			stack[top++] = start;
+			visited[start] = true;
+			while(top > 0) {
+				int next = stack[--top];
+				int x = next % width;
+				int y = next / width;
+				minX = Math.min(minX, x);
+				maxX = Math.max(maxX, x);
+				minY = Math.min(minY, y);
+				maxY = Math.max(maxY, y);
+				for(int dy = -1; dy <= 1; dy++) {
+					for(int dx = -1; dx <= 1; dx++) {
+						int nx = x + dx;
+						int ny = y + dy;
+						if(nx >= 0 && ny >= 0 && nx < width && ny < height) {
+							int neighbour = ny * width + nx;
+							if(!visited[neighbour] && isBox(pixels[neighbour])) {
+								visited[neighbour] = true;
+								stack[top++] = neighbour;
+							}
+						}
+					}
+				}
+			}
+
+			if(maxX - minX >= MIN_BOX_SIZE && maxY - minY >= MIN_BOX_SIZE) {
+				toReturn.add(new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1));
+			}
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Helper method to give names to boxes in order
+	 *******************************************************************************/
+	private void nameBoxes(Map<String, Rectangle> named, List<Rectangle> boxes, String... names) {
+		for(int i = 0; i < names.length; i++) {
+			named.put(names[i], boxes.get(i));
+		}
+	}
+
+	/*******************************************************************************
+	 * Helper method to sort boxes from top to bottom or from left to right
+	 *******************************************************************************/
+	private List<Rectangle> sorted(List<Rectangle> boxes, final boolean byY) {
+		List<Rectangle> toReturn = new ArrayList<Rectangle>(boxes);
+		Collections.sort(toReturn, new Comparator<Rectangle>() {
+			@Override
+			public int compare(Rectangle first, Rectangle second) {
+				return byY ? Integer.compare(first.y, second.y) : Integer.compare(first.x, second.x);
+			}
+		});
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * @return boolean - if the RGB colour is dark enough to be ink
+	 *******************************************************************************/
+	private boolean isInk(int rgb) {
+		int r = (rgb >> 16) & 0xFF;
+		int g = (rgb >> 8) & 0xFF;
+		int b = rgb & 0xFF;
+		return (r * 299 + g * 587 + b * 114) / 1000 < INK_LEVEL;
+	}
+
+	/*******************************************************************************
+	 * @return boolean - if the RGB colour is the light blue of the figure boxes
+	 *******************************************************************************/
+	private boolean isBox(int rgb) {
+		int r = (rgb >> 16) & 0xFF;
+		int b = rgb & 0xFF;
+		return b > 200 && b - r > 30;
+	}
+}
@@ -0,0 +1,92 @@
+package project2;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*******************************************************************************
+ * A map which holds at most a fixed number of entries, dropping the least
+ * recently used entry when a new one would go over.  It is used for the caches
+ * which live as long as a server does (See BatchContext and MatrixSolver), so
+ * they can't grow with every distinct problem ever solved.  It is safe to use
+ * from several threads at once.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class LruCache<K, V> {
+
+	/*** The entries, least recently used first */
+	private LinkedHashMap<K, V> entries;
+
+	/*** Most entries held at once */
+	private int capacity;
+
+	/*** Number of entries dropped to make room */
+	private long evictions;
+
+	/***************************************************************
+	 * Constructor with values
+	 * @param capacity - the most entries held at once
+	****************************************************************/
+	public LruCache(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				if(size() > LruCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/***************************************************************
+	 * @return V - the value of the key, null if it isn't cached
+	****************************************************************/
+	public synchronized V get(K key) {
+		return entries.get(key);
+	}
+
+	/***************************************************************
+	 * Cache a value unless the key already has one
+	 *
+	 * @return V - the value already cached, null if the value was added
+	****************************************************************/
+	public synchronized V putIfAbsent(K key, V value) {
+		V toReturn = entries.get(key);
+		if(toReturn == null) {
+			entries.put(key, value);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Empty the cache, the eviction count is kept
+	****************************************************************/
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+}
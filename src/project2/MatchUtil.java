@@ -3,10 +3,12 @@ package project2;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 import project2.SemanticNetworkAttribute;
 import project2.SemanticNetworkObj;
@@ -28,6 +30,28 @@ public class MatchUtil {
 	/*** Constant to mark when an object in a frame is deleted */
 	private static final String DELETEDOBJECT = "DELETED";
 
+	/*** Fewest objects in a figure before only objects of the same colour are compared.  Small
+	 *   figures are cheap to compare in full, and full comparison is what the bundled problems,
+	 *   which have at most 7 objects, were solved with. */
+	private static final int REFINE_MIN_OBJECTS = 8;
+
+	/*** Fewest objects in a figure before only objects in the same bucket are compared (See
+	 *   ObjectBlocking).  Below this the full comparison costs only a few milliseconds and
+	 *   matches generated problems more accurately. */
+	private static final int BLOCKING_MIN_OBJECTS = 32;
+
+	/*** Fewest objects in a figure before similarity scores are estimated from signatures (See
+	 *   AttributeSignature), and the fewest of the best estimates for each object which are
+	 *   then confirmed with an exact score */
+	private static final int SIGNATURE_MIN_OBJECTS = 8;
+	private static final int CONFIRMED_ESTIMATES = 5;
+
+	/*** Times the search for an object's match was cut short by the deadline, by every MatchUtil */
+	private static final AtomicLong CAPPED_MATCHES = new AtomicLong();
+
+	/*** Passes of the search for an object's match, by every MatchUtil */
+	private static final AtomicLong MATCH_ITERATIONS = new AtomicLong();
+
 	/*******************************************************************************
 	 * Default empty constructor. 
 	 * 
@@ -141,60 +165,14 @@ public class MatchUtil {
 			//Step through each object in the first figure and compare it's attributes to
 	    	//those in the second figure
 	    	for(SemanticNetworkObj firstObj : first) {
-	
-				//Pull the object from the first Network
-	    		List<SemanticNetworkAttribute> firstAttrs = firstObj.getAttributes();
 	    		
 	    		HashMap<String, Integer> objectSimularityMap = new HashMap<String, Integer>();
 	    		
 	    		for(SemanticNetworkObj secondObj : second) {
 	    			
-					//Pull the object from the second Network
-	    			List<SemanticNetworkAttribute> secondAttrs = secondObj.getAttributes();
-	    			
-	    			int simularityScore = 0;
-	    			
-	    			//Test if they were added/deleted the same
-	    			if(secondObj.getExistsNew() == firstObj.getExistsNew()) {
-	    				simularityScore += 10;
-	    			}
-	    			if(secondObj.getExistsOld() == firstObj.getExistsOld()) {
-	    				simularityScore += 10;
-	    			}
-	    			
-					//Compare the attributes to determine how similar the objects are
-	    			for(SemanticNetworkAttribute firstAttr : firstAttrs) {
-	    				
-	    				String firstValueNew = firstAttr.getNewVal();
-	    				String firstValueOld = firstAttr.getOldVal();
-	    				
-	    				for(SemanticNetworkAttribute secondAttr : secondAttrs) {
-	    					
-	    					String secondValueNew = secondAttr.getNewVal();
-	    					String secondValueOld = secondAttr.getOldVal();
-	    					
-							//If the attributes are similar, award the correct weighted score
-	    					if(firstAttr.getName().equals(secondAttr.getName())) {
-	    						if(secondValueOld.equals(firstValueOld) || secondValueNew.equals(firstValueNew)) {
-	    							switch (firstAttr.getName()) {
-	    								case "shape":
-	    									simularityScore += 5;
-	    								break;
-	    								case "fill" :
-	    									simularityScore += 3;
-	    								break;
-	    								default:
-	    									simularityScore += 1;
-	    								break;
-	    								
-	    							}
-	    						}
-	    					}
-	    				}
-	    			}
-					
 					//Keep track of the scores for each potential object mapping in order to determine
 					//which is the best later on
+	    			int simularityScore = scoreObjects(firstObj, secondObj);
 	    			objectSimularityMap.put(secondObj.getName(), Integer.valueOf(simularityScore));
 	    			objectMatchMap.put(firstObj.getName(), objectSimularityMap);
 	    		}
@@ -254,63 +232,97 @@ public class MatchUtil {
 			HashMap<String, String> temp = second.get(nameInSecond);
 			second.remove(nameInSecond);
 			second.put(nameInFirst, temp);
-			replaceFillerValues(second, nameInSecond, nameInFirst);
+
+			//A lone object's relations can only name itself
+			if(temp != null) {
+				for(String relation : RelationScorer.RELATIONS) {
+					if(nameInSecond.equals(temp.get(relation))) {
+						temp.put(relation, nameInFirst);
+					}
+				}
+			}
 		}
 		else {
 			int deleted = firstFillerCount - secondFillerCount > 0 ? firstFillerCount - secondFillerCount : 0;
 			int added = secondFillerCount - firstFillerCount > 0 ? secondFillerCount - firstFillerCount : 0;
 			
+			//Colour the objects of large figures by their attributes and relations, only
+			//objects of the same colour can match (See ColourRefinement)
+			RelationGraph firstGraph = new RelationGraph(first);
+			RelationGraph graph = new RelationGraph(second);
+			int fillerCount = Math.max(firstFillerCount, secondFillerCount);
+			ColourRefinement colours = fillerCount >= REFINE_MIN_OBJECTS ? new ColourRefinement(firstGraph, graph) : null;
+			
+			//Only objects in the same shape and fill bucket are compared, with a few others
+			ObjectBlocking blocking = fillerCount >= BLOCKING_MIN_OBJECTS
+					? new ObjectBlocking(getBlockingKeys(firstGraph), getBlockingKeys(graph)) : null;
+			
+			//In large figures the scores are estimated from signatures (See AttributeSignature)
+			AttributeSignature[] signatures = null;
+			if(fillerCount >= SIGNATURE_MIN_OBJECTS) {
+				signatures = new AttributeSignature[graph.size()];
+				for(int secondId = 0; secondId < signatures.length; secondId++) {
+					signatures[secondId] = new AttributeSignature(graph.getAttributes(secondId));
+				}
+			}
 			
 			//Step through each object in the first figure and compare it's attributes to
 	    	//those in the second figure
 	    	for(String fillerInFirst : first.keySet()) {
 	
 				HashMap<String, String> firstFillers = first.get(fillerInFirst);
+				int firstId = firstGraph.getId(fillerInFirst);
+				AttributeSignature firstSignature = signatures == null ? null : new AttributeSignature(firstFillers);
 	    		
 	    		HashMap<String, Integer> objectSimularityMap = new HashMap<String, Integer>();
+	    		objectMatchMap.put(fillerInFirst, objectSimularityMap);
 	    		
-	    		for(String fillerInSecond : second.keySet()) {
-	    			
+	    		Collection<String> candidates = second.keySet();
+	    		if(blocking != null) {
+	    			candidates = new ArrayList<String>();
+	    			for(int secondId : blocking.getCandidates(firstId)) {
+	    				candidates.add(graph.getName(secondId));
+	    			}
+	    		}
+	    		
+	    		//Only the candidates ColourRefinement keeps, unless that leaves none to match
+	    		if(colours != null) {
+	    			List<String> sameColour = new ArrayList<String>();
+	    			for(String fillerInSecond : candidates) {
+	    				if(colours.isCandidate(firstId, graph.getId(fillerInSecond))) {
+	    					sameColour.add(fillerInSecond);
+	    				}
+	    			}
+	    			if(!sameColour.isEmpty()) {
+	    				candidates = sameColour;
+	    			}
+	    		}
+	    		
+	    		for(String fillerInSecond : candidates) {
 	    			HashMap<String, String> secondFillers = second.get(fillerInSecond);
 	    			
-	    			int simularityScore = 0;
-	    			
-	    			if(firstFillers != null) {
-	    				
-		    			for(String firstValueName : firstFillers.keySet()) {
-		    				
-		    				String firstValue = firstFillers.get(firstValueName);
-		    				
-		    				if(secondFillers != null) {
-			    				for(String secondValueName : secondFillers.keySet()) {
-			    					
-			    					String secondValue = secondFillers.get(secondValueName);
-			    					
-									//If the attributes are similar, award the correct weighted score
-			    					if(secondValueName.equals(firstValueName)) {
-			    						if(secondValue.equals(firstValue)) {
-			    							switch (firstValueName) {
-			    								case "shape":
-			    									simularityScore += 5;
-			    								break;
-			    								case "fill" :
-			    									simularityScore += 3;
-			    								break;
-			    								default:
-			    									simularityScore += 1;
-			    								break;
-			    								
-			    							}
-			    						}
-			    					}
-			    				}
-		    				}
-		    			}
-	    			}
 					//Keep track of the scores for each potential object mapping in order to determine
 					//which is the best later on
+	    			int simularityScore = scoreObjects(firstFillers, secondFillers, firstSignature,
+	    					signatures == null ? null : signatures[graph.getId(fillerInSecond)]);
 	    			objectSimularityMap.put(fillerInSecond, Integer.valueOf(simularityScore));
-	    			objectMatchMap.put(fillerInFirst, objectSimularityMap);
+	    		}
+	    		
+	    		//Only the best scores decide the match, so confirm each estimate which could still beat
+	    		//the best exact score, and leave out the rest so no estimate is compared to an exact score
+	    		if(signatures != null) {
+	    			HashMap<String, Integer> confirmed = new HashMap<String, Integer>();
+	    			int bestExact = 0;
+	    			for(String fillerInSecond : rankEstimates(objectSimularityMap)) {
+	    				if(confirmed.size() >= CONFIRMED_ESTIMATES
+	    						&& objectSimularityMap.get(fillerInSecond).intValue() < bestExact) {
+	    					break;
+	    				}
+	    				int exact = scoreObjects(firstFillers, second.get(fillerInSecond), null, null);
+	    				confirmed.put(fillerInSecond, Integer.valueOf(exact));
+	    				bestExact = Math.max(bestExact, exact);
+	    			}
+	    			objectMatchMap.put(fillerInFirst, confirmed);
 	    		}
 	    	}
 			
@@ -323,57 +335,121 @@ public class MatchUtil {
 	    	for(String matchName : bestMatchesMap.keySet()) {
 	    		String value = bestMatchesMap.get(matchName);
 	    		HashMap<String, String> deletedMap = new HashMap<String, String>();
-	    		deletedMap.put(DELETEDOBJECT, DELETEDOBJECT);
+	    		deletedMap.put(DELETEDOBJECT, matchName);
 	    		HashMap<String, String> temp = value.equals(DELETEDOBJECT) ? deletedMap : second.get(bestMatchesMap.get(matchName));
 				second.remove(bestMatchesMap.get(matchName));
 				second.put(matchName, temp);
-				
-				//Change any attribute which references an object which has had it's name changed
-				//to reference the new name (ie Above:A)
-	    		replaceFillerValues(second, bestMatchesMap.get(matchName), matchName);
+				graph.rename(value, matchName);
 	    	}
+
+			//Change any attribute which references an object which has had it's name changed
+			//to reference the new name (ie Above:A)
+	    	graph.writeRelations();
 		}
 	}
 	
 	
 	/**********************************************************************************
-	 * Change any attribute which references an object which has had it's name changed
-	 * to reference the new name (ie Above:A) 
-	 * This method depends on pass-by-reference and is an overloaded method.
-	 *
-	 * @param filler - Frame values which need to be checked if updates to filler values
-	 *					should occur based on filler matching.
-	 * @param oldName - Old name of the object before matching took place
-	 * @param newName - New name of the object after matching took place
+	 * Helper method to score how similar two objects of a Semantic Network are.  This
+	 * is an overloaded method.
 	 ***********************************************************************************/
-	private void replaceFillerValues(HashMap<String, HashMap<String, String>> filler, String oldName, String newName) {
-	
-		//Search the Frame's values to see if the object's old name is the 
-		//value for any of the fillers
-		for(String fillerName : filler.keySet()) {
-			HashMap<String, String> temp = filler.get(fillerName);
+	private int scoreObjects(SemanticNetworkObj firstObj, SemanticNetworkObj secondObj) {
+		int simularityScore = 0;
+		
+		//Test if they were added/deleted the same
+		if(secondObj.getExistsNew() == firstObj.getExistsNew()) {
+			simularityScore += 10;
+		}
+		if(secondObj.getExistsOld() == firstObj.getExistsOld()) {
+			simularityScore += 10;
+		}
+		
+		//Compare the attributes to determine how similar the objects are
+		for(SemanticNetworkAttribute firstAttr : firstObj.getAttributes()) {
 			
-			//Keep track of those fillers we should replace because we cannot
-			//modify an array while iterating it
-			List<String> toReplace = new ArrayList<String>();
+			String firstValueNew = firstAttr.getNewVal();
+			String firstValueOld = firstAttr.getOldVal();
 			
-			if(temp != null) {
-				for(String valueName : temp.keySet()) {
-					String value = temp.get(valueName);
-					if(value.equals(oldName)) {
-						toReplace.add(valueName);
+			for(SemanticNetworkAttribute secondAttr : secondObj.getAttributes()) {
+				
+				String secondValueNew = secondAttr.getNewVal();
+				String secondValueOld = secondAttr.getOldVal();
+				
+				//If the attributes are similar, award the correct weighted score
+				if(firstAttr.getName().equals(secondAttr.getName())) {
+					if(secondValueOld.equals(firstValueOld) || secondValueNew.equals(firstValueNew)) {
+						simularityScore += AttributeSignature.getWeight(firstAttr.getName());
 					}
 				}
+			}
+		}
+		return simularityScore;
+	}
+
+	/**********************************************************************************
+	 * Helper method to score how similar two objects of a figure are.  The score is
+	 * estimated from the signatures of their values when they are given, or else
+	 * exact.  This is an overloaded method.
+	 *
+	 * @param firstSignature - signature of the values of the first object, or null
+	 * @param secondSignature - signature of the values of the second object, or null
+	 ***********************************************************************************/
+	private int scoreObjects(HashMap<String, String> firstFillers, HashMap<String, String> secondFillers,
+			AttributeSignature firstSignature, AttributeSignature secondSignature) {
+		if(firstSignature != null && secondSignature != null) {
+			return firstSignature.similarity(secondSignature);
+		}
+		int simularityScore = 0;
+		if(firstFillers != null && secondFillers != null) {
+			for(String firstValueName : firstFillers.keySet()) {
 				
-				//Make the changes we captured
-				for(String replace : toReplace) {
-					temp.remove(replace);
-					temp.put(replace, newName);
+				String firstValue = firstFillers.get(firstValueName);
+				
+				for(String secondValueName : secondFillers.keySet()) {
+					
+					String secondValue = secondFillers.get(secondValueName);
+					
+					//If the attributes are similar, award the correct weighted score
+					if(secondValueName.equals(firstValueName) && secondValue.equals(firstValue)) {
+						simularityScore += AttributeSignature.getWeight(firstValueName);
+					}
 				}
 			}
 		}
+		return simularityScore;
 	}
-	
+
+	/**********************************************************************************
+	 * Helper method to rank objects by their estimated scores
+	 *
+	 * @param estimates - estimated score by object name
+	 * @return List<String> - the names of the objects, best first
+	 ***********************************************************************************/
+	private List<String> rankEstimates(final HashMap<String, Integer> estimates) {
+		List<String> toReturn = new ArrayList<String>(estimates.keySet());
+		Collections.sort(toReturn, new Comparator<String>() {
+			@Override
+			public int compare(String first, String second) {
+				return estimates.get(second).compareTo(estimates.get(first));
+			}
+		});
+		return toReturn;
+	}
+
+	/**********************************************************************************
+	 * Helper method to collect the shape and fill of each object in a figure, by id,
+	 * for ObjectBlocking
+	 ***********************************************************************************/
+	private String[][] getBlockingKeys(RelationGraph graph) {
+		String[][] toReturn = new String[graph.size()][];
+		for(int id = 0; id < toReturn.length; id++) {
+			HashMap<String, String> attributes = graph.getAttributes(id);
+			toReturn[id] = attributes == null ? new String[2]
+					: new String[] { attributes.get("shape"), attributes.get("fill") };
+		}
+		return toReturn;
+	}
+
 	/**********************************************************************************
 	 * Change any attribute which references an object which has had it's name changed
 	 * to reference the new name (ie Above:A) 
@@ -426,6 +502,11 @@ public class MatchUtil {
 		//by the key in the map
     	for(String objectName : objectMatchMap.keySet()) {
     		
+    		//Nothing in the second figure to match, which only happens when it is empty
+    		if(objectMatchMap.get(objectName).isEmpty()) {
+    			continue;
+    		}
+    		
 			//Determine the next best match for the object in the second figure,
     		String best = findNextBestMatch(objectName, objectMatchMap, prevMatches);
     		
@@ -637,12 +718,22 @@ public class MatchUtil {
 		boolean bestFound = false;
 		String best = "";
 		int bestScore = 0;
+		SolveContext solveContext = SolveContext.current();
 		
 		//Until the best match has been found, move to the next best match.
 		//This is to account for the situation when the best match, is a better match for
 		// a different object.
 		while(!bestFound) {
     		HashMap<String, Integer> possibleMatches = objectMatchMap.get(objectName);
+
+    		//The deadline has passed, settle for the best scoring match.  Without a deadline the
+    		//search always ends once every rank has been tried (iter > possibleMatches.size())
+    		if(iter > 0 && solveContext.isPastDeadline()) {
+    			CAPPED_MATCHES.incrementAndGet();
+    			best = findXBestMatch(possibleMatches, 0);
+    			iter += 1;
+    			break;
+    		}
     		
     		//Step through each object and find out what it's best match is
     		best = findXBestMatch(possibleMatches, iter);
@@ -660,7 +751,7 @@ public class MatchUtil {
     				bestFound = true;
     			}
     		}else {
-    			if(comparison2.equals(objectName)) {
+    			if(comparison2.equals(objectName) || iter > possibleMatches.size()) {
     				bestFound = true;
     			}
     		}
@@ -669,6 +760,8 @@ public class MatchUtil {
     		iter += 1;
 		}
 		
+		MATCH_ITERATIONS.addAndGet(iter);
+
 		//Add this match to the previous matches map
 		HashMap<String, Integer> tmp = new HashMap<String, Integer>();
 		tmp.put(best, bestScore);
@@ -677,6 +770,23 @@ public class MatchUtil {
 	}
 	
 	
+	/************************************************************************
+	 * @return long - the number of times the search for an object's match
+	 * 				  was cut short because the deadline passed, since the
+	 * 				  program started
+	*************************************************************************/
+	public static long getCappedMatches() {
+		return CAPPED_MATCHES.get();
+	}
+
+	/************************************************************************
+	 * @return long - the number of passes the search for an object's match
+	 * 				  has made, since the program started
+	*************************************************************************/
+	public static long getMatchIterations() {
+		return MATCH_ITERATIONS.get();
+	}
+
 	/************************************************************************
 	 * Helper method to rank the given matches by similarity score and then
 	 * return the X best match
@@ -711,11 +821,10 @@ public class MatchUtil {
 		} catch(IndexOutOfBoundsException e) {
 		
 			//If we are here then there is a hole in the logic and
-			//the agent can't figure out the mapping - so just guess.
+			//the agent can't figure out the mapping - so just cycle through
+			//the ranks, that way the same figures always get the same mapping
 			int size = rankedMatches.size();
-			Random rand = new Random();
-			int last = rand.nextInt(size);
-			toReturn = (String) rankedMatches.get(last).keySet().toArray()[0];
+			toReturn = (String) rankedMatches.get(iter % size).keySet().toArray()[0];
 		}
 		return toReturn;
 	}
@@ -864,10 +973,10 @@ public class MatchUtil {
 		try {
 			toReturn = (String) rankedMatches.get(x).keySet().toArray()[0];
 		} catch(IndexOutOfBoundsException e) {
+			
+			//Cycle through the ranks instead of guessing so the result is repeatable
 			int size = rankedMatches.size();
-			Random rand = new Random();
-			int last = rand.nextInt(size);
-			toReturn = (String) rankedMatches.get(last).keySet().toArray()[0];
+			toReturn = (String) rankedMatches.get(x % size).keySet().toArray()[0];
 		}
 		return toReturn;
 		
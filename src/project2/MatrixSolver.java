@@ -0,0 +1,279 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*******************************************************************************
+ * The MatrixSolver solves a Raven's Matrix of any size, such as "3x3".  The
+ * figures are named row by row starting from A, so a 3x3 Matrix has the rows
+ * A B C, D E F and G H #, where # is the missing figure.  The possible answers
+ * are named 1, 2, 3 and so on.
+ *
+ * Every complete row shows a transition from its second last figure to its
+ * last figure, and every complete column shows one from its second last
+ * figure to its last.  An answer is scored by how well the transition from
+ * its neighbour in the last row (and in the last column) matches each of these
+ * examples, using both the Semantic Network and the Frames approaches.  The
+ * neighbour is matched to the first figure of each example, and the answer to
+ * the neighbour, so their objects have the same names as the example's and
+ * the Semantic Networks can be compared object by object.
+ *
+ * The transition between two figures is analyzed once and cached by the
+ * content of the two figures, and each answer is compared to every row and
+ * column once, so the cost grows with the number of rows and columns rather
+ * than with the number of figure pairs.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class MatrixSolver {
+
+	/*** Utility class used to complete matching calculations*/
+	private MatchUtil matchUtil;
+
+	/*** Utility class used to complete matching calculations*/
+	private SemanticNetworkUtil smUtil;
+
+	/*** Utility class used to complete matching calculations*/
+	private FrameUtil frameUtil;
+
+	/*** Used for the content keys and shared symbols of the figures */
+	private BatchContext context;
+
+	/*** Analysis of each pair of figures, by the content of the pair, least recently used dropped first */
+	private LruCache<String, PairAnalysis> pairs;
+
+	/*** Cache statistics */
+	private AtomicInteger pairHits;
+	private AtomicInteger pairMisses;
+
+	/***************************************************************
+	 * Default constructor with empty caches
+	****************************************************************/
+	public MatrixSolver() {
+		matchUtil = new MatchUtil();
+		smUtil = new SemanticNetworkUtil();
+		frameUtil = new FrameUtil();
+		context = new BatchContext();
+		pairs = new LruCache<String, PairAnalysis>(Integer.getInteger(BatchContext.CAPACITY_PROPERTY,
+				BatchContext.DEFAULT_CAPACITY));
+		pairHits = new AtomicInteger();
+		pairMisses = new AtomicInteger();
+	}
+
+	/***************************************************************
+	 * Read the number of rows and columns from the problem type
+	 *
+	 * @param problemType - the type of problem, such as "3x3"
+	 * @return int[] - the number of rows and then columns
+	 * @throws IllegalArgumentException if the type is not a size
+	****************************************************************/
+	public static int[] getSize(String problemType) {
+		String[] split = problemType.toLowerCase().split("x");
+		try {
+			int[] toReturn = { Integer.parseInt(split[0].trim()), Integer.parseInt(split[1].trim()) };
+			if(split.length == 2 && toReturn[0] > 0 && toReturn[1] > 0 && toReturn[0] * toReturn[1] > 1
+					&& toReturn[0] * toReturn[1] <= 27) {
+				return toReturn;
+			}
+		}catch(NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			//Fall through to the error below
+		}
+		throw new IllegalArgumentException("Invalid matrix size: " + problemType);
+	}
+
+	/***************************************************************
+	 * @return String - the name of the figure in the given row and
+	 * 					column, "#" for the missing figure
+	****************************************************************/
+	public static String getFigureName(int row, int column, int rows, int columns) {
+		if(row == rows - 1 && column == columns - 1) {
+			return "#";
+		}
+		return String.valueOf((char) ('A' + row * columns + column));
+	}
+
+	/***************************************************************
+	 * Solve the problem
+	 *
+	 * @param problem - Raven's Problem to solve
+	 * @return SolveResult - the best answer and the score for each
+	 * 						 answer.  Ties go to the first answer.
+	****************************************************************/
+	public SolveResult solve(RavensProblem problem) {
+		int[] scores = score(problem);
+		int best = 0;
+		for(int i = 1; i < scores.length; i++) {
+			if(scores[i] > scores[best]) {
+				best = i;
+			}
+		}
+		return new SolveResult(problem.getName(), String.valueOf(best + 1), scores);
+	}
+
+	/***************************************************************
+	 * Score each of the possible answers
+	 *
+	 * @param problem - Raven's Problem to score
+	 * @return int[] - the score for each answer, answer 1 first
+	****************************************************************/
+	public int[] score(RavensProblem problem) {
+		int[] size = getSize(problem.getProblemType());
+		int rows = size[0];
+		int columns = size[1];
+		HashMap<String, RavensFigure> figures = problem.getFigures();
+
+		//The examples are the last transition of every complete row and column
+		List<PairAnalysis> rowExamples = new ArrayList<PairAnalysis>();
+		List<PairAnalysis> columnExamples = new ArrayList<PairAnalysis>();
+		RavensFigure left = null;
+		RavensFigure above = null;
+		if(columns > 1) {
+			for(int r = 0; r < rows - 1; r++) {
+				rowExamples.add(getPair(figures.get(getFigureName(r, columns - 2, rows, columns)),
+						figures.get(getFigureName(r, columns - 1, rows, columns))));
+			}
+			left = figures.get(getFigureName(rows - 1, columns - 2, rows, columns));
+		}
+		if(rows > 1) {
+			for(int c = 0; c < columns - 1; c++) {
+				columnExamples.add(getPair(figures.get(getFigureName(rows - 2, c, rows, columns)),
+						figures.get(getFigureName(rows - 1, c, rows, columns))));
+			}
+			above = figures.get(getFigureName(rows - 2, columns - 1, rows, columns));
+		}
+
+		//The neighbour of the missing figure matched to each example, in the same order
+		List<PairAnalysis> examples = new ArrayList<PairAnalysis>(rowExamples);
+		examples.addAll(columnExamples);
+		List<HashMap<String, HashMap<String, String>>> neighbours = new ArrayList<HashMap<String, HashMap<String, String>>>();
+		for(PairAnalysis example : examples) {
+			HashMap<String, HashMap<String, String>> values = context.getValuesMap(
+					neighbours.size() < rowExamples.size() ? left : above);
+			matchUtil.matchObjects(example.firstValues, values);
+			neighbours.add(values);
+		}
+
+		//What each example's transition would make of the neighbour of the missing figure
+		List<HashMap<String, HashMap<String, String>>> predictions = new ArrayList<HashMap<String, HashMap<String, String>>>();
+		for(int e = 0; e < examples.size(); e++) {
+			predictions.add(predict(examples.get(e), neighbours.get(e)));
+		}
+
+		int[] toReturn = new int[countAnswers(figures)];
+		for(int i = 0; i < toReturn.length; i++) {
+			RavensFigure answer = figures.get(String.valueOf(i + 1));
+			int score = 0;
+
+			//The Semantic Network approach, the answer is matched to the neighbour so its
+			//objects have the names of the example's
+			for(int e = 0; e < examples.size(); e++) {
+				HashMap<String, HashMap<String, String>> answerValues = context.getValuesMap(answer);
+				matchUtil.matchObjects(neighbours.get(e), answerValues);
+				score += smUtil.compareDifference(examples.get(e).diff,
+						smUtil.calculateDifference(neighbours.get(e), answerValues));
+			}
+
+			//The Frames approach
+			for(HashMap<String, HashMap<String, String>> predicted : predictions) {
+				HashMap<String, HashMap<String, String>> answerValues = context.getValuesMap(answer);
+				matchUtil.matchObjects(predicted, answerValues);
+				score += frameUtil.compareFrames(answerValues, predicted);
+			}
+			toReturn[i] = score;
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Get the analysis of the transition from one figure to another,
+	 * analyzing it only the first time the pair is seen
+	 *
+	 * @param first - the figure before the transition
+	 * @param second - the figure after the transition
+	 * @return PairAnalysis - the analysis of the transition
+	****************************************************************/
+	private PairAnalysis getPair(RavensFigure first, RavensFigure second) {
+		String key = context.getKey(first) + "->" + context.getKey(second);
+		PairAnalysis toReturn = pairs.get(key);
+		if(toReturn != null) {
+			pairHits.incrementAndGet();
+			return toReturn;
+		}
+		pairMisses.incrementAndGet();
+
+		HashMap<String, HashMap<String, String>> firstValues = context.getValuesMap(first);
+		HashMap<String, HashMap<String, String>> secondValues = context.getValuesMap(second);
+		matchUtil.matchObjects(firstValues, secondValues);
+
+		toReturn = new PairAnalysis(firstValues, frameUtil.calcTransitions(firstValues, secondValues),
+				smUtil.calculateDifference(firstValues, secondValues));
+		PairAnalysis existing = pairs.putIfAbsent(key, toReturn);
+		return existing != null ? existing : toReturn;
+	}
+
+	/***************************************************************
+	 * Apply the transition of an example pair to a figure
+	 *
+	 * @param example - the example transition
+	 * @param values - values of the figure to apply it to, matched to
+	 * 				   the first figure of the example so the
+	 * 				   transitions name its objects
+	 * @return HashMap - the values of the Frame calculated to follow
+	 * 					 the figure
+	****************************************************************/
+	private HashMap<String, HashMap<String, String>> predict(PairAnalysis example,
+			HashMap<String, HashMap<String, String>> values) {
+		Frame calculatedFrame = new Frame("calculated");
+		frameUtil.applyTransformation(frameUtil.convertToFrame(values), example.transitions, calculatedFrame);
+		return matchUtil.getValuesMap(calculatedFrame);
+	}
+
+	/***************************************************************
+	 * Helper method to count the numbered answers in the problem
+	****************************************************************/
+	private int countAnswers(HashMap<String, RavensFigure> figures) {
+		int toReturn = 0;
+		while(figures.containsKey(String.valueOf(toReturn + 1))) {
+			toReturn++;
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public int getPairHits() {
+		return pairHits.get();
+	}
+
+	public int getPairMisses() {
+		return pairMisses.get();
+	}
+
+	/***************************************************************
+	 * The analysis of the transition from one figure to another.  It
+	 * is shared between problems, so it must not be changed.
+	****************************************************************/
+	private static class PairAnalysis {
+
+		/*** Values of the first figure, which the second was matched to */
+		private HashMap<String, HashMap<String, String>> firstValues;
+
+		/*** Transitions from the first figure to the second */
+		private TransitionList transitions;
+
+		/*** Semantic Network between the first figure and the second */
+		private List<SemanticNetworkObj> diff;
+
+		private PairAnalysis(HashMap<String, HashMap<String, String>> firstValues, TransitionList transitions,
+				List<SemanticNetworkObj> diff) {
+			this.firstValues = firstValues;
+			this.transitions = transitions;
+			this.diff = diff;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*******************************************************************************
+ * ObjectBlocking puts the objects of two figures in buckets by the attributes
+ * which weigh the most when objects are compared, shape first and then fill,
+ * so MatchUtil only has to compare an object to the objects in its bucket
+ * instead of every object in the other figure.
+ *
+ * When the second figure has at least as many objects in an object's bucket as
+ * the first, its match is almost always in the bucket.  When it has fewer, some
+ * of the objects changed shape or fill, so the object is also compared to a
+ * few objects of the same shape, and to a few of the objects in buckets which
+ * grew, where the changed objects went.  These extra comparisons are bounded by
+ * FALLBACK, so matching large figures costs close to linear time.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ObjectBlocking {
+
+	/*** Most objects added from outside an object's bucket for each fallback */
+	public static final int FALLBACK = 8;
+
+	/*** Candidates of each object in the first figure */
+	private int[][] candidates;
+
+	/***************************************************************
+	 * Constructor which puts the objects in buckets and chooses the
+	 * candidates for each object of the first figure
+	 *
+	 * @param first - the shape and fill of each object in the first
+	 * 				  figure by id, either can be null
+	 * @param second - the shape and fill of each object in the second
+	 * 				   figure by id, either can be null
+	****************************************************************/
+	public ObjectBlocking(String[][] first, String[][] second) {
+		//Ids of the objects in each figure by bucket, and in the second figure by shape alone
+		Map<String, List<Integer>> secondBuckets = new HashMap<String, List<Integer>>();
+		Map<String, List<Integer>> secondShapes = new HashMap<String, List<Integer>>();
+		for(int id = 0; id < second.length; id++) {
+			add(secondBuckets, getBucket(second[id]), id);
+			add(secondShapes, String.valueOf(second[id][0]), id);
+		}
+		Map<String, List<Integer>> firstBuckets = new HashMap<String, List<Integer>>();
+		for(int id = 0; id < first.length; id++) {
+			add(firstBuckets, getBucket(first[id]), id);
+		}
+
+		//Objects which changed shape or fill are likely to be in the buckets which grew
+		List<Integer> surplus = new ArrayList<Integer>();
+		for(Map.Entry<String, List<Integer>> bucket : secondBuckets.entrySet()) {
+			List<Integer> inFirst = firstBuckets.get(bucket.getKey());
+			if(inFirst == null || bucket.getValue().size() > inFirst.size()) {
+				surplus.addAll(bucket.getValue());
+			}
+		}
+		if(surplus.isEmpty()) {
+			for(int id = 0; id < second.length; id++) {
+				surplus.add(Integer.valueOf(id));
+			}
+		}
+
+		candidates = new int[first.length][];
+		int fallbacks = 0;
+		for(int id = 0; id < first.length; id++) {
+			String bucket = getBucket(first[id]);
+			List<Integer> inBucket = secondBuckets.get(bucket);
+			Set<Integer> toAdd = new LinkedHashSet<Integer>();
+			if(inBucket != null) {
+				toAdd.addAll(inBucket);
+			}
+			if(inBucket == null || inBucket.size() < firstBuckets.get(bucket).size()) {
+
+				//Shape weighs the most, so objects of the same shape come first
+				List<Integer> sameShape = secondShapes.get(String.valueOf(first[id][0]));
+				if(sameShape != null) {
+					toAdd.addAll(sameShape.subList(0, Math.min(FALLBACK, sameShape.size())));
+				}
+
+				//Each object looks at a different window of the surplus, so they don't all compete for the same ones
+				int start = fallbacks * FALLBACK / 2;
+				for(int i = 0; i < Math.min(FALLBACK, surplus.size()); i++) {
+					toAdd.add(surplus.get((start + i) % surplus.size()));
+				}
+				fallbacks++;
+			}
+			candidates[id] = new int[toAdd.size()];
+			int i = 0;
+			for(Integer candidate : toAdd) {
+				candidates[id][i++] = candidate.intValue();
+			}
+		}
+	}
+
+	/***************************************************************
+	 * @param firstId - the id of an object in the first figure
+	 * @return int[] - the ids of the objects in the second figure it
+	 * 				   should be compared to
+	****************************************************************/
+	public int[] getCandidates(int firstId) {
+		return candidates[firstId];
+	}
+
+	/***************************************************************
+	 * Helper method to get the bucket of an object's shape and fill
+	****************************************************************/
+	private static String getBucket(String[] keys) {
+		return keys[0] + "\t" + keys[1];
+	}
+
+	/***************************************************************
+	 * Helper method to add an id to a bucket
+	****************************************************************/
+	private static void add(Map<String, List<Integer>> buckets, String key, int id) {
+		List<Integer> bucket = buckets.get(key);
+		if(bucket == null) {
+			bucket = new ArrayList<Integer>();
+			buckets.put(key, bucket);
+		}
+		bucket.add(Integer.valueOf(id));
+	}
+}
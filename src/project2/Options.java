@@ -0,0 +1,77 @@
+package project2;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*******************************************************************************
+ * The Options of a command line in the form the tools of this package take,
+ * "--name value" for each setting and "--name" alone for a flag (See
+ * ProblemGenerator, ScalingBenchmark and RegressionGate).  Each setting is
+ * taken once with get, so any left over were not understood (See checkUsed).
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class Options {
+
+	/*** The settings not taken yet, in the order given */
+	private Map<String, String> values;
+
+	/*** The flags which were given */
+	private Set<String> flags;
+
+	/***************************************************************
+	 * Constructor which reads the arguments
+	 *
+	 * @param args - the arguments of the command line
+	 * @param flagNames - names of the options which take no value
+	 * @throws IllegalArgumentException if an argument is not an option
+	****************************************************************/
+	public Options(String[] args, String... flagNames) {
+		Set<String> known = new HashSet<String>(Arrays.asList(flagNames));
+		this.values = new LinkedHashMap<String, String>();
+		this.flags = new HashSet<String>();
+		for(int i = 0; i < args.length; i++) {
+			String name = args[i].startsWith("--") ? args[i].substring(2) : null;
+			if(name != null && known.contains(name)) {
+				flags.add(name);
+			}else if(name != null && i + 1 < args.length) {
+				values.put(name, args[++i]);
+			}else {
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+	}
+
+	/***************************************************************
+	 * Take a setting, or its default
+	 *
+	 * @param name - the name of the setting, without the --
+	 * @param defaultValue - the value if the setting wasn't given
+	 * @return String - the value of the setting
+	****************************************************************/
+	public String get(String name, String defaultValue) {
+		String toReturn = values.remove(name);
+		return toReturn == null ? defaultValue : toReturn;
+	}
+
+	/***************************************************************
+	 * @return boolean - true if the flag was given
+	****************************************************************/
+	public boolean isSet(String flag) {
+		return flags.contains(flag);
+	}
+
+	/***************************************************************
+	 * Check every setting given has been taken
+	 *
+	 * @throws IllegalArgumentException if any setting is left over
+	****************************************************************/
+	public void checkUsed() {
+		if(!values.isEmpty()) {
+			throw new IllegalArgumentException("Unknown options: " + values.keySet());
+		}
+	}
+}
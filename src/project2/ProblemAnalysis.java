@@ -0,0 +1,106 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/*******************************************************************************
+ * The ProblemAnalysis class holds everything the Agent calculates about a
+ * Raven's Problem before the possible answers are scored.  This includes the
+ * matched values of the problem figures, the Frame calculated to be the answer
+ * and the Semantic Networks between the example figures.  Scorers read from
+ * the analysis but must never change it.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ProblemAnalysis {
+
+	/*** Values of the figures in the problem, by figure name (ie. A, B, C) */
+	private HashMap<String, HashMap<String, HashMap<String, String>>> figureValues;
+
+	/*** Values of the Frame calculated to be the answer */
+	private HashMap<String, HashMap<String, String>> calculatedFrameValues;
+
+	/*** Semantic Network between Figure A and Figure B */
+	private List<SemanticNetworkObj> baselineDiffAB;
+
+	/*** Semantic Network between Figure A and Figure C, null when there is no column (2x1) */
+	private List<SemanticNetworkObj> baselineDiffAC;
+
+	/*** Values of each possible answer, matched to the problem figures */
+	private List<HashMap<String, HashMap<String, String>>> answerValues;
+
+	/***************************************************************
+	 * Default constructor
+	****************************************************************/
+	public ProblemAnalysis() {
+		figureValues = new HashMap<String, HashMap<String, HashMap<String, String>>>();
+		answerValues = new ArrayList<HashMap<String, HashMap<String, String>>>();
+	}
+
+	/***************************************************************
+	 * Constructor which shares everything the baseline analysis has
+	 * calculated, except for the possible answers
+	 * @param baseline - the analysis of the example figures
+	****************************************************************/
+	public ProblemAnalysis(ProblemAnalysis baseline) {
+		figureValues = baseline.figureValues;
+		calculatedFrameValues = baseline.calculatedFrameValues;
+		baselineDiffAB = baseline.baselineDiffAB;
+		baselineDiffAC = baseline.baselineDiffAC;
+		answerValues = new ArrayList<HashMap<String, HashMap<String, String>>>();
+	}
+
+	/***************************************************************
+	 * @return boolean - if the problem has a column (A to C) as well
+	 * 					 as a row (A to B) to compare answers to
+	****************************************************************/
+	public boolean hasColumns() {
+		return baselineDiffAC != null;
+	}
+
+	/***************************************************************
+	 *
+	 * Setters and Getters for class instance variables 
+	 *
+	****************************************************************/
+	public HashMap<String, HashMap<String, String>> getFigureValues(String figureName) {
+		return figureValues.get(figureName);
+	}
+
+	public void setFigureValues(String figureName, HashMap<String, HashMap<String, String>> values) {
+		figureValues.put(figureName, values);
+	}
+
+	public HashMap<String, HashMap<String, String>> getCalculatedFrameValues() {
+		return calculatedFrameValues;
+	}
+
+	public void setCalculatedFrameValues(HashMap<String, HashMap<String, String>> calculatedFrameValues) {
+		this.calculatedFrameValues = calculatedFrameValues;
+	}
+
+	public List<SemanticNetworkObj> getBaselineDiffAB() {
+		return baselineDiffAB;
+	}
+
+	public void setBaselineDiffAB(List<SemanticNetworkObj> baselineDiffAB) {
+		this.baselineDiffAB = baselineDiffAB;
+	}
+
+	public List<SemanticNetworkObj> getBaselineDiffAC() {
+		return baselineDiffAC;
+	}
+
+	public void setBaselineDiffAC(List<SemanticNetworkObj> baselineDiffAC) {
+		this.baselineDiffAC = baselineDiffAC;
+	}
+
+	public List<HashMap<String, HashMap<String, String>>> getAnswerValues() {
+		return answerValues;
+	}
+
+	public void addAnswerValues(HashMap<String, HashMap<String, String>> values) {
+		answerValues.add(values);
+	}
+}
@@ -0,0 +1,470 @@
+package project2;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*******************************************************************************
+ * The ProblemGenerator writes synthetic problems in the same format as the
+ * files in the Problems folder (See ProblemSet.addProblem), with as many objects
+ * per figure as needed, so the Agent can be stress tested far beyond the few
+ * objects in the bundled problems.
+ *
+ * Figure A is made of random objects.  A transformation (See TRANSFORMS) is
+ * chosen for the row, and for a 2x2 problem a different one for the column,
+ * and each is applied to a random part of the objects.  B is A after the row
+ * transformation, C is A after the column transformation (or any new figure
+ * in a 2x1 problem) and the correct answer is C after the row transformation.
+ * The other answers are the correct answer with one more change, so the
+ * answer is always known.  They never have more objects or attributes than
+ * the correct answer, since the Agent's scores favour answers with more.
+ * Objects can be related to earlier objects with relation attributes such as
+ * inside:A-1 or above:A-2,A-3.
+ *
+ *   java project2.ProblemGenerator [--out folder] [--count n] [--type 2x1|2x2]
+ *        [--objects n] [--vocabulary n] [--extra n] [--relations inside,above,overlaps]
+ *        [--density d] [--transforms fill,shape,...] [--changed fraction] [--seed n]
+ *        [--check]
+ *
+ * The problems are written to one problem set folder in the output folder, and
+ * --check solves them with the Agent and reports the accuracy and time taken.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ProblemGenerator {
+
+	/*** Folder the problems are written to by default */
+	public static final String DEFAULT_FOLDER = "Generated";
+
+	/*** The transformations which can be applied to the objects */
+	public static final List<String> TRANSFORMS = Arrays.asList("fill", "shape", "size", "angle", "flip", "delete");
+
+	/*** The relation attributes which can be added between objects */
+	public static final List<String> RELATIONS = Arrays.asList("inside", "above", "left-of", "overlaps");
+
+	/*** Values seen in the bundled problems, used before made up values */
+	private static final String[] SHAPES = { "square", "circle", "triangle", "Pac-Man", "plus", "pentagon", "hexagon",
+			"rectangle", "octagon", "septagon", "heptagon", "diamond", "arrow", "half-arrow", "right-triangle" };
+	private static final String[] SIZES = { "very-small", "small", "medium", "large", "very-large", "huge" };
+
+	/*** Transformations which only change a value every object has, used for the wrong answers */
+	private static final String[] VALUE_TRANSFORMS = { "fill", "shape", "size", "angle" };
+
+	/*** Most objects a relation refers to */
+	private static final int MAX_RELATED = 2;
+
+	/*** Names of the figures after A, B and C, the answers */
+	private static final int ANSWERS = 6;
+
+	/*** Settings */
+	private String problemType;
+	private int objects;
+	private int vocabulary;
+	private int extraAttributes;
+	private List<String> relations;
+	private double density;
+	private List<String> transforms;
+	private double changed;
+	private long seed;
+
+	/***************************************************************
+	 * Constructor with values
+	 *
+	 * @param problemType - "2x1" or "2x2"
+	 * @param objects - number of objects in figure A
+	 * @param vocabulary - number of values each attribute can take
+	 * @param extraAttributes - number of made up attributes each object
+	 * 							has on top of shape, fill, size and angle
+	 * @param relations - the relation attributes to add (See RELATIONS)
+	 * @param density - chance of each object having each relation
+	 * @param transforms - the transformations to choose from (See TRANSFORMS)
+	 * @param changed - fraction of the objects each transformation changes
+	 * @param seed - seed of the random numbers, the same seed always
+	 * 				 gives the same problems
+	 * @throws IllegalArgumentException if a setting is out of range
+	****************************************************************/
+	public ProblemGenerator(String problemType, int objects, int vocabulary, int extraAttributes, List<String> relations,
+			double density, List<String> transforms, double changed, long seed) {
+		if(!problemType.equals("2x1") && !problemType.equals("2x2")) {
+			throw new IllegalArgumentException("Only 2x1 and 2x2 problems can be generated: " + problemType);
+		}
+		if(objects < 1 || vocabulary < 2 || extraAttributes < 0 || density < 0 || density > 1 || changed <= 0
+				|| changed > 1) {
+			throw new IllegalArgumentException("Invalid generator settings");
+		}
+		if(!RELATIONS.containsAll(relations)) {
+			throw new IllegalArgumentException("Unknown relation in " + relations + ", expected " + RELATIONS);
+		}
+		if(transforms.isEmpty() || !TRANSFORMS.containsAll(transforms)) {
+			throw new IllegalArgumentException("Unknown transformation in " + transforms + ", expected " + TRANSFORMS);
+		}
+		if(problemType.equals("2x2") && new HashSet<String>(transforms).size() < 2) {
+			throw new IllegalArgumentException("2x2 problems need at least two transformations");
+		}
+		this.problemType = problemType;
+		this.objects = objects;
+		this.vocabulary = vocabulary;
+		this.extraAttributes = extraAttributes;
+		this.relations = relations;
+		this.density = density;
+		this.transforms = transforms;
+		this.changed = changed;
+		this.seed = seed;
+	}
+
+	/***************************************************************
+	 * @return String - the name of the generated problem with the
+	 * 					given number
+	****************************************************************/
+	public String getName(int number) {
+		return problemType + " Generated Problem " + String.format("%03d", number);
+	}
+
+	/***************************************************************
+	 * Generate one problem.  The problem only depends on the settings
+	 * and its number.
+	 *
+	 * @param number - the number of the problem
+	 * @return String - the problem in the format of the problem files
+	****************************************************************/
+	public String generate(int number) {
+		Random random = new Random(seed * 31 + number);
+
+		//A is random, the transformations change part of its objects
+		List<Obj> figureA = createFigure(random);
+		String rowTransform = transforms.get(random.nextInt(transforms.size()));
+		Set<Integer> rowTargets = chooseTargets(figureA, random);
+		List<Obj> figureB = transform(figureA, rowTransform, rowTargets);
+
+		List<Obj> figureC;
+		if(problemType.equals("2x2")) {
+			String columnTransform;
+			do {
+				columnTransform = transforms.get(random.nextInt(transforms.size()));
+			}while(columnTransform.equals(rowTransform));
+			figureC = transform(figureA, columnTransform, chooseTargets(figureA, random));
+		}else {
+			figureC = createFigure(random);
+			rowTargets = chooseTargets(figureC, random);
+		}
+		List<Obj> answer = transform(figureC, rowTransform, rowTargets);
+
+		//The other answers are the correct answer with one more change
+		List<List<Obj>> answers = new ArrayList<List<Obj>>();
+		Set<String> seen = new HashSet<String>();
+		answers.add(answer);
+		seen.add(describe(answer));
+		for(int attempt = 0; answers.size() < ANSWERS; attempt++) {
+			List<Obj> wrong = mutate(answer, random, attempt);
+			if(seen.add(describe(wrong))) {
+				answers.add(wrong);
+			}
+		}
+		int correct = random.nextInt(ANSWERS);
+		answers.add(correct, answers.remove(0));
+
+		StringBuilder toReturn = new StringBuilder();
+		toReturn.append(getName(number)).append('\n').append(problemType).append('\n').append(correct + 1).append('\n');
+		write(toReturn, "A", figureA);
+		write(toReturn, "B", figureB);
+		write(toReturn, "C", figureC);
+		for(int i = 0; i < ANSWERS; i++) {
+			write(toReturn, String.valueOf(i + 1), answers.get(i));
+		}
+		return toReturn.toString();
+	}
+
+	/***************************************************************
+	 * Generate one problem as a RavensProblem
+	 *
+	 * @param number - the number of the problem
+	 * @return RavensProblem - the problem
+	****************************************************************/
+	public RavensProblem generateProblem(int number) {
+		try {
+			return ProblemParser.parse(new BufferedReader(new StringReader(generate(number))));
+		}catch(IOException e) {
+			throw new IllegalStateException("Generated an invalid problem", e);
+		}
+	}
+
+	/***************************************************************
+	 * Write problems to a problem set folder in the given folder
+	 *
+	 * @param folder - the folder to write the problem set to
+	 * @param count - the number of problems
+	 * @return File - the problem set folder
+	 * @throws IOException if a file can not be written
+	****************************************************************/
+	public File writeSet(File folder, int count) throws IOException {
+		File toReturn = new File(folder, problemType + " Generated Problems");
+		if(!toReturn.isDirectory() && !toReturn.mkdirs()) {
+			throw new IOException("Unable to create " + toReturn);
+		}
+		for(int i = 1; i <= count; i++) {
+			File file = new File(toReturn, getName(i).replace(" ", "") + ".txt");
+			try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+				writer.write(generate(i));
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to create a figure of random objects, each object
+	 * can be related to the objects before it
+	****************************************************************/
+	private List<Obj> createFigure(Random random) {
+		List<Obj> toReturn = new ArrayList<Obj>();
+		for(int i = 0; i < objects; i++) {
+			Obj obj = new Obj(i);
+			obj.attributes.put("shape", getValue(SHAPES, random.nextInt(vocabulary), "shape"));
+			obj.attributes.put("fill", random.nextBoolean() ? "yes" : "no");
+			obj.attributes.put("size", getValue(SIZES, random.nextInt(vocabulary), "size"));
+			obj.attributes.put("angle", String.valueOf(45 * random.nextInt(8)));
+			for(int a = 0; a < extraAttributes; a++) {
+				obj.attributes.put("attribute-" + a, "value-" + random.nextInt(vocabulary));
+			}
+			for(String relation : relations) {
+				if(i > 0 && random.nextDouble() < density) {
+					Set<Integer> related = new HashSet<Integer>();
+					int count = 1 + random.nextInt(Math.min(MAX_RELATED, i));
+					while(related.size() < count) {
+						related.add(Integer.valueOf(random.nextInt(i)));
+					}
+					obj.relations.put(relation, new ArrayList<Integer>(related));
+				}
+			}
+			toReturn.add(obj);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to choose the objects a transformation changes
+	****************************************************************/
+	private Set<Integer> chooseTargets(List<Obj> figure, Random random) {
+		Set<Integer> toReturn = new HashSet<Integer>();
+		int count = Math.max(1, (int) Math.round(figure.size() * changed));
+		while(toReturn.size() < count) {
+			toReturn.add(Integer.valueOf(figure.get(random.nextInt(figure.size())).id));
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to apply a transformation to the target objects.
+	 * Deleting never takes the last object of a figure, so the answers
+	 * always have an object to change.
+	 *
+	 * @param figure - the figure to transform, it is not changed
+	 * @param transform - the transformation (See TRANSFORMS)
+	 * @param targets - ids of the objects to change
+	 * @return List<Obj> - the transformed figure
+	****************************************************************/
+	private List<Obj> transform(List<Obj> figure, String transform, Set<Integer> targets) {
+		List<Obj> toReturn = new ArrayList<Obj>();
+		for(int i = 0; i < figure.size(); i++) {
+			Obj obj = figure.get(i);
+			boolean target = targets.contains(Integer.valueOf(obj.id));
+			if(target && transform.equals("delete")) {
+				if(!toReturn.isEmpty() || i < figure.size() - 1) {
+					continue;
+				}
+				target = false;
+			}
+			Obj copy = obj.copy();
+			if(target) {
+				change(copy, transform);
+			}
+			toReturn.add(copy);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to change one object by a transformation
+	****************************************************************/
+	private void change(Obj obj, String transform) {
+		switch(transform) {
+			case "fill":
+				obj.attributes.put("fill", obj.attributes.get("fill").equals("yes") ? "no" : "yes");
+				break;
+			case "shape":
+				obj.attributes.put("shape", getValue(SHAPES, (indexOf(SHAPES, obj.attributes.get("shape"), "shape") + 1)
+						% vocabulary, "shape"));
+				break;
+			case "size":
+				obj.attributes.put("size", getValue(SIZES, (indexOf(SIZES, obj.attributes.get("size"), "size") + 1)
+						% vocabulary, "size"));
+				break;
+			case "angle":
+				obj.attributes.put("angle", String.valueOf((Integer.parseInt(obj.attributes.get("angle")) + 90) % 360));
+				break;
+			case "flip":
+				obj.attributes.put("vertical-flip", "yes".equals(obj.attributes.get("vertical-flip")) ? "no" : "yes");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown transformation: " + transform);
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to make a wrong answer from the right one, by
+	 * deleting an object or changing values of them.  Wrong
+	 * answers never have more objects or attributes than the right
+	 * one, so an answer can't be picked out just by its size.
+	****************************************************************/
+	private List<Obj> mutate(List<Obj> answer, Random random, int attempt) {
+		if(answer.isEmpty()) {
+			throw new IllegalStateException("An answer with no objects can't be changed");
+		}
+		List<Obj> toReturn = new ArrayList<Obj>();
+		for(Obj obj : answer) {
+			toReturn.add(obj.copy());
+		}
+		if(attempt == 0 && toReturn.size() > 1) {
+			toReturn.remove(random.nextInt(toReturn.size()));
+		}else {
+			//Small figures run out of different single changes, so later attempts change more
+			for(int i = 0; i <= attempt / ANSWERS; i++) {
+				change(toReturn.get(random.nextInt(toReturn.size())), VALUE_TRANSFORMS[random.nextInt(VALUE_TRANSFORMS.length)]);
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to write a figure, every object is named by the
+	 * figure and its id so names are unique in the problem
+	****************************************************************/
+	private void write(StringBuilder text, String figureName, List<Obj> figure) {
+		text.append(figureName).append('\n');
+		Set<Integer> present = new HashSet<Integer>();
+		for(Obj obj : figure) {
+			present.add(Integer.valueOf(obj.id));
+		}
+		for(Obj obj : figure) {
+			text.append('\t').append(figureName).append('-').append(obj.id).append('\n');
+			for(Map.Entry<String, String> attribute : obj.attributes.entrySet()) {
+				text.append("\t\t").append(attribute.getKey()).append(':').append(attribute.getValue()).append('\n');
+			}
+
+			//Relations to deleted objects go with them
+			for(Map.Entry<String, List<Integer>> relation : obj.relations.entrySet()) {
+				StringBuilder value = new StringBuilder();
+				for(Integer id : relation.getValue()) {
+					if(present.contains(id)) {
+						value.append(value.length() == 0 ? "" : ",").append(figureName).append('-').append(id);
+					}
+				}
+				if(value.length() > 0) {
+					text.append("\t\t").append(relation.getKey()).append(':').append(value).append('\n');
+				}
+			}
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to describe a figure without its object names, so
+	 * answers which look the same can be found
+	****************************************************************/
+	private String describe(List<Obj> figure) {
+		StringBuilder toReturn = new StringBuilder();
+		for(Obj obj : figure) {
+			toReturn.append(obj.attributes).append(obj.relations).append(';');
+		}
+		return toReturn.toString();
+	}
+
+	/***************************************************************
+	 * Helper method to get the value with the given index, real values
+	 * first and then made up ones
+	****************************************************************/
+	private static String getValue(String[] values, int index, String attribute) {
+		return index < values.length ? values[index] : attribute + "-" + index;
+	}
+
+	/***************************************************************
+	 * Helper method to get the index of a value from getValue
+	****************************************************************/
+	private static int indexOf(String[] values, String value, String attribute) {
+		int toReturn = Arrays.asList(values).indexOf(value);
+		return toReturn >= 0 ? toReturn : Integer.parseInt(value.substring(attribute.length() + 1));
+	}
+
+	/*******************************************************************************
+	 * Write the problems described by the arguments, and solve them with --check
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		Options options = new Options(args, "check");
+		boolean check = options.isSet("check");
+
+		String relations = options.get("relations", "inside,above");
+		ProblemGenerator generator = new ProblemGenerator(options.get("type", "2x2"),
+				Integer.parseInt(options.get("objects", "4")), Integer.parseInt(options.get("vocabulary", "4")),
+				Integer.parseInt(options.get("extra", "0")),
+				relations.isEmpty() ? new ArrayList<String>() : Arrays.asList(relations.split(",")),
+				Double.parseDouble(options.get("density", "0.3")),
+				Arrays.asList(options.get("transforms", "fill,shape,size,angle").split(",")),
+				Double.parseDouble(options.get("changed", "0.5")), Long.parseLong(options.get("seed", "1")));
+		int count = Integer.parseInt(options.get("count", "20"));
+		File folder = new File(options.get("out", DEFAULT_FOLDER));
+		options.checkUsed();
+
+		File set = generator.writeSet(folder, count);
+		System.out.println("Wrote " + count + " problems to " + set);
+
+		if(check) {
+			Agent agent = new Agent();
+			agent.setVerbose(false);
+			int correct = 0;
+			long start = System.nanoTime();
+			for(int i = 1; i <= count; i++) {
+				RavensProblem problem = generator.generateProblem(i);
+				String answer = agent.solve(problem, null).getAnswer();
+				if(answer.equals(problem.checkAnswer(answer))) {
+					correct++;
+				}
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("accuracy=%.3f problems/s=%.1f %s", (double) correct / count, count / seconds,
+					agent.getMetrics()));
+		}
+	}
+
+	/*******************************************************************************
+	 * An object of a generated figure.  The id stays the same through every
+	 * transformation, relations refer to other objects by id.
+	 *******************************************************************************/
+	private static class Obj {
+		private int id;
+		private TreeMap<String, String> attributes;
+		private TreeMap<String, List<Integer>> relations;
+
+		private Obj(int id) {
+			this.id = id;
+			this.attributes = new TreeMap<String, String>();
+			this.relations = new TreeMap<String, List<Integer>>();
+		}
+
+		private Obj copy() {
+			Obj toReturn = new Obj(id);
+			toReturn.attributes.putAll(attributes);
+			toReturn.relations.putAll(relations);
+			return toReturn;
+		}
+	}
+}
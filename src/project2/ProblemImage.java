@@ -0,0 +1,116 @@
+package project2;
+
+import java.util.HashMap;
+
+/*******************************************************************************
+ * The ProblemImage class represents a Raven's Problem that was read from an
+ * image instead of a verbal description.  Each figure in the problem (A, B, C
+ * and the answers 1 through 6) is a Bitmap of the same size.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ProblemImage {
+
+	/*** Name of the image the problem was read from */
+	private String name;
+
+	/*** The type of problem, 2x1 or 2x2, taken from the layout of the image */
+	private String problemType;
+
+	/*** Figures in the problem by figure name */
+	private HashMap<String, Bitmap> figures;
+
+	/*** Smaller copies of the figures by width and then figure name */
+	private HashMap<Integer, HashMap<String, Bitmap>> resolutions;
+
+	/***************************************************************
+	 * Constructor with values
+	****************************************************************/
+	public ProblemImage(String name, String problemType) {
+		this.name = name;
+		this.problemType = problemType;
+		this.figures = new HashMap<String, Bitmap>();
+		this.resolutions = new HashMap<Integer, HashMap<String, Bitmap>>();
+	}
+
+	/***************************************************************
+	 * Get a smaller copy of a figure
+	 *
+	 * @param figureName - name of the figure
+	 * @param size - width of the copy
+	 * @return Bitmap - the figure at that size, the full size figure
+	 * 					if size is its width, or null if there is no
+	 * 					copy at that size
+	****************************************************************/
+	public Bitmap getFigure(String figureName, int size) {
+		Bitmap figure = figures.get(figureName);
+		if(figure != null && figure.getWidth() == size) {
+			return figure;
+		}
+		HashMap<String, Bitmap> resolution = resolutions.get(size);
+		return resolution == null ? null : resolution.get(figureName);
+	}
+
+	/***************************************************************
+	 * Store a smaller copy of a figure, found again by its width.
+	 * The copies are not locked, so they must all be stored before
+	 * the image is shared (See ImageCache).
+	 *
+	 * @param figureName - name of the figure
+	 * @param figure - the figure at a smaller size
+	****************************************************************/
+	public void setSmallerFigure(String figureName, Bitmap figure) {
+		HashMap<String, Bitmap> resolution = resolutions.get(figure.getWidth());
+		if(resolution == null) {
+			resolution = new HashMap<String, Bitmap>();
+			resolutions.put(figure.getWidth(), resolution);
+		}
+		resolution.put(figureName, figure);
+	}
+
+	/***************************************************************
+	 * @return long - the approximate memory used by every figure in bytes
+	****************************************************************/
+	public long getSizeInBytes() {
+		long toReturn = 0;
+		for(Bitmap figure : figures.values()) {
+			toReturn += figure.getSizeInBytes();
+		}
+		for(HashMap<String, Bitmap> resolution : resolutions.values()) {
+			for(Bitmap figure : resolution.values()) {
+				toReturn += figure.getSizeInBytes();
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 *
+	 * Setters and Getters for class instance variables 
+	 *
+	****************************************************************/
+	public String getName() {
+		return name;
+	}
+
+	public String getProblemType() {
+		return problemType;
+	}
+
+	public Bitmap getFigure(String figureName) {
+		return figures.get(figureName);
+	}
+
+	public void setFigure(String figureName, Bitmap figure) {
+		figures.put(figureName, figure);
+	}
+
+	public HashMap<String, Bitmap> getFigures() {
+		return figures;
+	}
+
+	@Override
+	public String toString() {
+		return "ProblemImage [" + name + ", " + problemType + ", figures=" + figures.keySet() + "]";
+	}
+}
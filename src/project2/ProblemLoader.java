@@ -0,0 +1,52 @@
+package project2;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*******************************************************************************
+ * Helper class to load the problem sets from a problems folder in the same way
+ * Project2 does.  Every folder in the problems folder becomes a ProblemSet and
+ * every file in that folder becomes a problem.  Folders and files are loaded in
+ * name order so that every run sees the problems in the same order.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ProblemLoader {
+
+	/*** Folder the problem sets are loaded from by default */
+	public static final String PROBLEMS_FOLDER = "Problems";
+
+	/*******************************************************************************
+	 * Load every problem set in the given folder
+	 * 
+	 * @param folder - the folder holding one folder per problem set
+	 * @return List<ProblemSet> - the problem sets, in name order
+	 *******************************************************************************/
+	public static List<ProblemSet> loadSets(File folder) {
+		List<ProblemSet> toReturn = new ArrayList<ProblemSet>();
+		for(File setFolder : sorted(folder.listFiles())) {
+			if(setFolder.isDirectory()) {
+				ProblemSet newSet = new ProblemSet(setFolder.getName());
+				for(File problem : sorted(setFolder.listFiles())) {
+					newSet.addProblem(problem);
+				}
+				toReturn.add(newSet);
+			}
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Helper method to sort the given files by name
+	 * 
+	 * @param files - the files to sort, can be null if the folder does not exist
+	 * @return File[] - the sorted files
+	 *******************************************************************************/
+	private static File[] sorted(File[] files) {
+		File[] toReturn = files == null ? new File[0] : files;
+		Arrays.sort(toReturn);
+		return toReturn;
+	}
+}
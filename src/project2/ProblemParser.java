@@ -0,0 +1,97 @@
+package project2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*******************************************************************************
+ * The ProblemParser reads problems in the same format as the files in the
+ * Problems folder (See ProblemSet.addProblem), but from any reader, so problems
+ * can be sent over a socket.  The first three lines are the name, the type and
+ * the answer, followed by the figures.  Figures start in the first column,
+ * objects are indented by one tab and attributes by two tabs:
+ *
+ *   2x1 Basic Problem 01
+ *   2x1
+ *   3
+ *   A
+ *   	Z
+ *   		shape:circle
+ *   ...
+ *   .
+ *
+ * Several problems can follow each other on one reader, each ending with a line
+ * holding only a full stop (END).
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ProblemParser {
+
+	/*** The line which ends a problem */
+	public static final String END = ".";
+
+	/*******************************************************************************
+	 * Read the next problem from the reader
+	 *
+	 * @param reader - the reader to read from
+	 * @return RavensProblem - the problem, or null if the reader is at its end
+	 * @throws IOException if the reader fails or the problem is not in the format
+	 *******************************************************************************/
+	public static RavensProblem parse(BufferedReader reader) throws IOException {
+		String name = reader.readLine();
+		if(name == null) {
+			return null;
+		}
+		return parse(name, reader);
+	}
+
+	/*******************************************************************************
+	 * Read the rest of a problem whose name line has already been read
+	 *
+	 * @param name - the name of the problem
+	 * @param reader - the reader to read the rest of the problem from
+	 * @return RavensProblem - the problem
+	 * @throws IOException if the reader fails or the problem is not in the format
+	 *******************************************************************************/
+	public static RavensProblem parse(String name, BufferedReader reader) throws IOException {
+		String type = reader.readLine();
+		String answer = reader.readLine();
+		if(type == null || answer == null || type.equals(END) || answer.equals(END)) {
+			throw new IOException("Problem ended before its type and answer: " + name);
+		}
+
+		List<RavensFigure> figures = new ArrayList<RavensFigure>();
+		RavensFigure currentFigure = null;
+		RavensObject currentObject = null;
+		String line;
+		while((line = reader.readLine()) != null && !line.equals(END)) {
+			if(line.trim().isEmpty()) {
+				continue;
+			}
+			if(!line.startsWith("\t")) {
+				currentFigure = new RavensFigure(line);
+				currentObject = null;
+				figures.add(currentFigure);
+			}else if(!line.startsWith("\t\t")) {
+				if(currentFigure == null) {
+					throw new IOException("Object before any figure: " + line.trim());
+				}
+				currentObject = new RavensObject(line.replace("\t", ""));
+				currentFigure.getObjects().add(currentObject);
+			}else {
+				String[] split = line.replace("\t", "").split(":", 2);
+				if(currentObject == null || split.length < 2) {
+					throw new IOException("Invalid attribute: " + line.trim());
+				}
+				currentObject.getAttributes().add(new RavensAttribute(split[0], split[1]));
+			}
+		}
+
+		RavensProblem toReturn = new RavensProblem(name, type, answer);
+		for(RavensFigure figure : figures) {
+			toReturn.getFigures().put(figure.getName(), figure);
+		}
+		return toReturn;
+	}
+}
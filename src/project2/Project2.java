@@ -14,8 +14,11 @@ package project2;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main driver file for Project2. You may edit this file to change which
@@ -29,53 +32,133 @@ public class Project2 {
      * The main method of Project2.
      */
     public static void main(String[] args) {
+        // Optional arguments
+        File jsonl = null;                                              // --jsonl file also writes one JSON line per problem,
+        File journalFile = new File("Results.journal");                 // with its scores and the time it took.
+        boolean fresh = false;                                          // --journal file changes where finished problems are recorded,
+        int[] shard = { 0, 1 };                                         // --fresh ignores the problems an unfinished run recorded.
+        int launch = 0;                                                 // --shard k/n only solves shard k of n (See ShardedRun),
+        int merge = 0;                                                  // --merge n merges the results of n shards into Results.txt,
+        List<String> shardArgs = new ArrayList<String>();               // --shards n runs n shards as processes and merges them.
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("--jsonl") && i + 1 < args.length) {
+                jsonl = new File(args[++i]);
+            } else if(args[i].equals("--journal") && i + 1 < args.length) {
+                journalFile = new File(args[++i]);
+            } else if(args[i].equals("--fresh")) {
+                fresh = true;
+                shardArgs.add(args[i]);
+            } else if(args[i].equals("--shard") && i + 1 < args.length) {
+                shard = ShardedRun.parseShard(args[++i]);
+            } else if(args[i].equals("--shards") && i + 1 < args.length) {
+                launch = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("--merge") && i + 1 < args.length) {
+                merge = Integer.parseInt(args[++i]);
+            }
+        }
+
+        // Running the shards as processes of their own, then merging their results
+        try {
+            if(launch > 0) {
+                int failed = ShardedRun.launch(launch, shardArgs);
+                if(failed > 0) {
+                    System.out.println(failed + " shards failed, see " + ShardedRun.SHARD_PREFIX + "*.log");
+                }
+                merge = launch;
+            }
+            if(merge > 0) {
+                if(!ShardedRun.merge(new File("Problems"), merge, new File("Results.txt"))) {
+                    System.exit(1);
+                }
+                ShardedRun.delete(merge);                               // Every problem is merged, so the next run starts from the beginning.
+                return;
+            }
+        } catch(IOException ex) {
+            System.out.println("Unable to run the shards:");
+            System.out.println(ex);
+            System.exit(1);
+        } catch(InterruptedException ex) {
+            System.out.println("Interrupted before every shard finished");
+            System.exit(1);
+        }
+
         // Loading problems from files
-        ArrayList<ProblemSet> sets = new ArrayList<ProblemSet>();       // The variable 'sets' stores multiple problem sets.
-                                                                        // Each problem set comes from a different folder in /Problems/
+        List<ProblemSet> sets = ShardedRun.loadSets(new File("Problems"), // The variable 'sets' stores multiple problem sets.
+                shard[0], shard[1]);                                    // Each problem set comes from a different folder in /Problems/
                                                                         // Additional sets of problems will be used when grading projects.
                                                                         // You may also write your own problems.
-        
-        for(File file : new File("Problems").listFiles()) {             // One problem set per folder in /Problems/
-            ProblemSet newSet = new ProblemSet(file.getName());         // Each problem set is named after the folder in /Problems/
-            sets.add(newSet);
-            for(File problem : file.listFiles()) {                      // Each file in the problem set folder becomes a problem in that set.
-                newSet.addProblem(problem);                             // Make sure to add only problem files to subfolders of /Problems/
-            }
+                                                                        // Each problem set is named after the folder in /Problems/
+                                                                        // and each file in the folder becomes a problem in that set.
+                                                                        // A shard only keeps its own problems.
+        File resultsFile = new File("Results.txt");
+        if(shard[0] > 0) {                                              // A shard keeps its own results and journal, for the merge.
+            resultsFile = new File(ShardedRun.getName(shard[0], shard[1]) + ".txt");
+            journalFile = new File(ShardedRun.getName(shard[0], shard[1]) + ".journal");
         }
         
         // Initializing problem-solving agent from Agent.java
-        Agent agent=new Agent();                                        // Your agent will be initialized with its default constructor.
-                                                                        // You may modify the default constructor in Agent.java
+        final Agent agent=new Agent();                                  // Your agent will be initialized with its default constructor.
+        agent.setVerbose(false);                                        // You may modify the default constructor in Agent.java
+                                                                        // Progress is printed by the results writer instead.
+        final BatchContext context = new BatchContext();
+        ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         
         // Running agent against each problem set
-        try {
-            PrintWriter results=new PrintWriter("Results.txt");         // Results will be written to Results.txt.
+        boolean finished = false;
+        try (CheckpointJournal journal = new CheckpointJournal(journalFile, fresh, CheckpointJournal.DEFAULT_SYNC_EVERY,
+                CheckpointJournal.DEFAULT_SYNC_MILLIS);                 // Every finished problem is recorded in the journal, so if the run dies
+             final ResultsWriter results = new ResultsWriter(resultsFile, jsonl, System.out, journal,
+                ResultsWriter.DEFAULT_QUEUE_SIZE)) {                    // the next run only solves the problems that are left.
+                                                                        // Results will be written to Results.txt, on the writer's own thread,
+                                                                        // in the same order as the problems whichever finishes first.
                                                                         // Note that each run of the program will overwrite the previous results.
                                                                         // Do not write anything else to Results.txt during execution of the program.
+            if(!journal.getCompleted().isEmpty()) {
+                System.out.println("Resuming from " + journalFile + ": " + journal.getCompleted().size() + " problems already solved");
+            }
 
             for(ProblemSet set : sets) {                            
-                results.println(set.getName());                         // Your agent will solve one problem set at a time.
-                results.println("-----------");                         // Problem sets will be individually categorized in the results file.
-                
-                for(RavensProblem problem : set.getProblems()) {        // Your agent will solve one problem at a time.
-//                    try {
-                        problem.setAnswerReceived(agent.Solve(problem));// The problem will be passed to your agent as a RavensProblem object as a parameter to the Solve method
-                                                                        // Your agent should return its answer at the conclusion of the execution of Solve.
-                                                                        // Note that if your agent makes use of RavensProblem.check to check its answer, the answer passed to check() will be used.
-                                                                        // Your agent cannot change its answer once it has checked its answer.
-                    
-                        results.println(problem.getName() + ": " + problem.getGivenAnswer() + " " + problem.getCorrect() + " (Correct Answer: " + problem.checkAnswer("") + ")");
-//                    } catch(Exception ex) {
-//                        System.out.println("Error encountered in " + set.getName() + " problem " + problem.getName());
-//                        results.println(problem.getName() + ": Error; no answer given.");
-//                    }
+                results.beginSet(set.getName());                        // Your agent will solve one problem set at a time.
+                                                                        // Problem sets will be individually categorized in the results file.
+                final String setName = set.getName();
+                for(final RavensProblem problem : set.getProblems()) {  // Your agent will solve one problem at a time, on one of the workers.
+                    final long ticket = results.reserve();
+                    CheckpointJournal.Entry done = journal.get(setName, problem.getName());
+                    if(done != null) {                                  // Problems an earlier run finished are not solved again.
+                        problem.setAnswerReceived(done.getGivenAnswer());
+                        results.restore(ticket, setName, problem, done);
+                        continue;
+                    }
+                    workers.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            long start = System.nanoTime();
+                            try {
+                                SolveResult result = agent.solve(problem, context);
+                                problem.setAnswerReceived(result.getAnswer()); // Your agent cannot change its answer once it has checked its answer.
+                                results.complete(ticket, setName, problem, result, System.nanoTime() - start);
+                            } catch(Throwable ex) {                     // Even an Error must fill the ticket, or the writer waits for it forever.
+                                results.fail(ticket, setName, problem, ex);
+                            }
+                        }
+                    });
                 }
-                results.println("");
+                results.endSet();
             }
-            results.close();
+            workers.shutdown();
+            finished = workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
         } catch(IOException ex) {
+            finished = false;
             System.out.println("Unable to create results file:");
             System.out.println(ex);
+        } catch(InterruptedException ex) {
+            System.out.println("Interrupted before every problem was solved");
+        } finally {
+            workers.shutdown();                                         // Even when the run fails, so the worker threads let the program exit.
+        }
+        if(finished && shard[0] == 0 && !journalFile.delete()) {       // The run is complete, so the next one starts from the beginning.
+            System.out.println("Unable to delete " + journalFile);
         }
+        System.out.println(agent.getMetrics());
     }
 }
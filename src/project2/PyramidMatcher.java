@@ -0,0 +1,236 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*******************************************************************************
+ * The PyramidMatcher solves problem images coarse to fine.  The transform from
+ * A to B and the scores of the answers are first found on the small copies of
+ * the figures, where a Bitmap is a sixteenth of the size.  Only the best few
+ * transforms and the best few answers are then looked at again at full size.
+ *
+ * Looking at fewer transforms and answers at full size is faster but can miss
+ * the right answer, so the number kept at each step can be tuned.  The work
+ * pruned at full size is counted so the trade off can be reported (See main):
+ * the transforms tested at full size against the full search VisualSolver
+ * makes, and the answers scored at full size against all six.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class PyramidMatcher {
+
+	/*** Width of the figures the coarse pass is run on */
+	public static final int COARSE_SIZE = 32;
+
+	/*** Number of answers every problem has */
+	private static final int ANSWERS = 6;
+
+	/*** Number of timed passes over the images */
+	private static final int PASSES = 10;
+
+	/*** Transforms the full size search tries, every variant at every translation */
+	private static final int FULL_SEARCH = TransformUtil.ROTATIONS * 2
+			* (2 * TransformUtil.MAX_SHIFT / TransformUtil.SHIFT_STEP + 1)
+			* (2 * TransformUtil.MAX_SHIFT / TransformUtil.SHIFT_STEP + 1);
+
+	/*** Used to score the answers at each size */
+	private VisualSolver visualSolver;
+
+	/*** Used to find the transforms at each size */
+	private TransformUtil transformUtil;
+
+	/*** Number of coarse transforms and answers looked at again at full size */
+	private int topTransforms;
+	private int topAnswers;
+
+	/*** Counters for reporting */
+	private long transformsRefined;
+	private long transformsPruned;
+	private long answersRefined;
+	private long answersPruned;
+
+	/***************************************************************
+	 * Constructor with values
+	 * @param topTransforms - coarse transforms refined at full size
+	 * @param topAnswers - answers scored again at full size
+	****************************************************************/
+	public PyramidMatcher(int topTransforms, int topAnswers) {
+		if(topTransforms < 1 || topAnswers < 1) {
+			throw new IllegalArgumentException("At least one transform and one answer must be refined");
+		}
+		this.visualSolver = new VisualSolver();
+		this.transformUtil = new TransformUtil();
+		this.topTransforms = topTransforms;
+		this.topAnswers = Math.min(topAnswers, ANSWERS);
+	}
+
+	/***************************************************************
+	 * Solve the problem image coarse to fine
+	 *
+	 * @param problem - the problem image
+	 * @return int - the best answer, 1 through 6.  Ties go to the
+	 * 				 first answer.
+	****************************************************************/
+	public int solve(ProblemImage problem) {
+		Bitmap figureA = problem.getFigure("A");
+		Bitmap figureB = problem.getFigure("B");
+		int scale = figureA.getWidth() / COARSE_SIZE;
+
+		//Search every transform on the small figures
+		Bitmap coarseA = VisualSolver.getFigure(problem, "A", COARSE_SIZE);
+		Bitmap coarseB = VisualSolver.getFigure(problem, "B", COARSE_SIZE);
+		int coarseShift = Math.max(1, TransformUtil.MAX_SHIFT / scale);
+		List<TransformUtil.Transform> coarse = transformUtil.findTransforms(coarseA, coarseB, coarseShift, 1, topTransforms);
+
+		//Only the best few are refined at full size, remembering which coarse transform won
+		TransformUtil.Transform transform = null;
+		TransformUtil.Transform winner = null;
+		long tested = transformUtil.getTransformsTested();
+		for(TransformUtil.Transform candidate : coarse) {
+			TransformUtil.Transform refined = transformUtil.refineTransform(figureA, figureB, candidate, scale);
+			if(transform == null || refined.getSimilarity() > transform.getSimilarity()) {
+				transform = refined;
+				winner = candidate;
+			}
+		}
+		tested = transformUtil.getTransformsTested() - tested;
+		transformsRefined += tested;
+		transformsPruned += Math.max(0, FULL_SEARCH - tested);
+
+		//Score every answer on the small figures under the winning transform and keep the best few
+		double[] coarseScores = visualSolver.scoreAnswers(problem, COARSE_SIZE, winner, null);
+		boolean[] include = new boolean[ANSWERS];
+		for(int kept = 0; kept < topAnswers; kept++) {
+			int best = -1;
+			for(int i = 0; i < ANSWERS; i++) {
+				if(!include[i] && (best < 0 || coarseScores[i] > coarseScores[best])) {
+					best = i;
+				}
+			}
+			include[best] = true;
+		}
+		answersRefined += topAnswers;
+		answersPruned += ANSWERS - topAnswers;
+
+		//Only the answers kept are scored at full size
+		double[] scores = visualSolver.scoreAnswers(problem, figureA.getWidth(), transform, include);
+		int toReturn = 0;
+		for(int i = 1; i < ANSWERS; i++) {
+			if(scores[i] > scores[toReturn]) {
+				toReturn = i;
+			}
+		}
+		return toReturn + 1;
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public long getTransformsRefined() {
+		return transformsRefined;
+	}
+
+	public long getTransformsPruned() {
+		return transformsPruned;
+	}
+
+	public long getAnswersRefined() {
+		return answersRefined;
+	}
+
+	public long getAnswersPruned() {
+		return answersPruned;
+	}
+
+	/*******************************************************************************
+	 * Compare the full size VisualSolver with pyramid matchers keeping different
+	 * numbers of transforms and answers, separately for the 2x1 and 2x2 images.
+	 * Every argument is a "transforms:answers" pair, for example:
+	 *
+	 *   java project2.PyramidMatcher 1:1 2:3 4:6
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		String[] settings = args.length > 0 ? args : new String[] { "1:1", "1:2", "2:3", "4:6" };
+		List<RavensProblem> verbal = new ArrayList<RavensProblem>();
+		List<ProblemImage> problems = VisualSolver.loadProblems(new File(ImageUtil.IMAGES_FOLDER), new ImageCache(), verbal);
+
+		System.out.println("type\tmatcher\tproblems/s\taccuracy\ttransforms pruned\tanswers pruned");
+		for(String type : new String[] { "2x1", "2x2" }) {
+			List<ProblemImage> typed = new ArrayList<ProblemImage>();
+			List<RavensProblem> typedVerbal = new ArrayList<RavensProblem>();
+			for(int i = 0; i < problems.size(); i++) {
+				if(problems.get(i).getProblemType().equals(type)) {
+					typed.add(problems.get(i));
+					typedVerbal.add(verbal.get(i));
+				}
+			}
+
+			//The full size solver is the baseline
+			final VisualSolver full = new VisualSolver();
+			report(type, "full", typed, typedVerbal, new Solver() {
+				@Override
+				public int solve(ProblemImage problem) {
+					return full.solve(problem);
+				}
+			}, null);
+
+			for(String setting : settings) {
+				String[] split = setting.split(":");
+				final PyramidMatcher matcher = new PyramidMatcher(Integer.parseInt(split[0].trim()),
+						Integer.parseInt(split[1].trim()));
+				report(type, "pyramid " + setting, typed, typedVerbal, new Solver() {
+					@Override
+					public int solve(ProblemImage problem) {
+						return matcher.solve(problem);
+					}
+				}, matcher);
+			}
+		}
+	}
+
+	/*******************************************************************************
+	 * Helper method to time a solver over the problems and print one line of
+	 * the report
+	 *******************************************************************************/
+	private static void report(String type, String name, List<ProblemImage> problems, List<RavensProblem> verbal,
+			Solver solver, PyramidMatcher matcher) {
+
+		//Warm up pass, which also fills the transform caches and checks the answers
+		int correct = 0;
+		for(int i = 0; i < problems.size(); i++) {
+			String answer = String.valueOf(solver.solve(problems.get(i)));
+			if(answer.equals(verbal.get(i).checkAnswer(answer))) {
+				correct++;
+			}
+		}
+
+		long start = System.nanoTime();
+		for(int pass = 0; pass < PASSES; pass++) {
+			for(ProblemImage problem : problems) {
+				solver.solve(problem);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		String pruned = "-\t-";
+		if(matcher != null) {
+			pruned = String.format("%.3f\t%.3f",
+					(double) matcher.getTransformsPruned() / (matcher.getTransformsPruned() + matcher.getTransformsRefined()),
+					(double) matcher.getAnswersPruned() / (matcher.getAnswersPruned() + matcher.getAnswersRefined()));
+		}
+		System.out.println(String.format("%s\t%s\t%.1f\t%.3f\t%s", type, name, problems.size() * PASSES / seconds,
+				problems.isEmpty() ? 0.0 : (double) correct / problems.size(), pruned));
+	}
+
+	/*******************************************************************************
+	 * Something which can solve a problem image, so both solvers can be timed
+	 * by the same code
+	 *******************************************************************************/
+	private interface Solver {
+		int solve(ProblemImage problem);
+	}
+}
@@ -0,0 +1,264 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/*******************************************************************************
+ * The RegressionGate runs the benchmarks and compares them to a baseline stored
+ * from an earlier run, so a change to the Agent or MatchUtil which makes it
+ * slower or less accurate is caught before it is deployed.  The metrics are:
+ *
+ *   corpus.<type>.problemsPerSecond - throughput on the Problems folder (See
+ *   corpus.<type>.accuracy            ScorerBenchmark)
+ *   corpus.<type>.bytesPerProblem
+ *   stage.<stage>.<objects>.nsPerOp - each stage of the ScalingBenchmark on
+ *   stage.<stage>.<objects>.bytesPerOp  generated problems
+ *
+ * Problems per second may not drop, and times and allocations may not grow, by
+ * more than the threshold (a fraction of the baseline).  Accuracy is the same
+ * on every run, so any drop in accuracy is a regression.  A metric which isn't
+ * in the baseline is reported but never fails the gate, while one in the
+ * baseline which this run didn't measure does.  The benchmarks are run
+ * several times and the best value of each metric is kept, which takes out
+ * most of the noise of a busy machine.
+ *
+ *   java project2.RegressionGate [--baseline file] [--threshold 0.25]
+ *        [--passes n] [--runs n] [--objects 1,4,16] [--update]
+ *
+ * The exit code is 0 when nothing regressed, 1 when something did and 2 when
+ * there is no baseline.  --update runs the benchmarks and stores the results
+ * as the new baseline.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class RegressionGate {
+
+	/*** File the baseline is stored in by default */
+	public static final String DEFAULT_BASELINE = "Baseline.properties";
+
+	/*** Largest regression allowed by default, as a fraction of the baseline */
+	public static final double DEFAULT_THRESHOLD = 0.25;
+
+	/*** Exit codes */
+	public static final int PASSED = 0;
+	public static final int REGRESSED = 1;
+	public static final int NO_BASELINE = 2;
+
+	/*** Accuracy differences smaller than this are rounding, not a regression */
+	private static final double ACCURACY_TOLERANCE = 0.0005;
+
+	/***************************************************************
+	 * Run the benchmarks and collect their metrics
+	 *
+	 * @param passes - timed passes over the Problems folder
+	 * @param objectCounts - objects per figure the stages are timed at
+	 * @return Map<String, Double> - the metrics by name, in a fixed order
+	****************************************************************/
+	public static Map<String, Double> collect(int passes, int[] objectCounts) {
+		Map<String, Double> toReturn = new LinkedHashMap<String, Double>();
+		List<ProblemSet> sets = ProblemLoader.loadSets(new File(ProblemLoader.PROBLEMS_FOLDER));
+		for(String type : new String[] { "2x1", "2x2" }) {
+			Agent agent = new Agent();
+			agent.setVerbose(false);
+			double[] result = ScorerBenchmark.measure(agent, sets, type, passes);
+			toReturn.put("corpus." + type + ".problemsPerSecond", result[0]);
+			toReturn.put("corpus." + type + ".accuracy", result[1]);
+			if(result[2] >= 0) {
+				toReturn.put("corpus." + type + ".bytesPerProblem", result[2]);
+			}
+		}
+
+		ScalingBenchmark scaling = new ScalingBenchmark("2x2", 3, 10 * passes, 0, 1000);
+		for(ScalingBenchmark.Point point : scaling.run(objectCounts, new int[] { 0 })) {
+			String name = "stage." + point.getStage() + "." + point.getObjects();
+			toReturn.put(name + ".nsPerOp", (double) point.getNanosPerOp());
+			if(point.getBytesPerOp() >= 0) {
+				toReturn.put(name + ".bytesPerOp", (double) point.getBytesPerOp());
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Run the benchmarks several times and keep the best value of
+	 * each metric, since a busy machine can only make a run slower.
+	 * One more run is made first and thrown away, so the code the
+	 * benchmarks share has been compiled by the JIT.
+	 *
+	 * @param runs - the number of times to run the benchmarks
+	 * @param passes - timed passes over the Problems folder
+	 * @param objectCounts - objects per figure the stages are timed at
+	 * @return Map<String, Double> - the best metrics by name
+	****************************************************************/
+	public static Map<String, Double> collectBest(int runs, int passes, int[] objectCounts) {
+		collect(1, objectCounts);
+		Map<String, Double> toReturn = collect(passes, objectCounts);
+		for(int run = 1; run < runs; run++) {
+			for(Map.Entry<String, Double> metric : collect(passes, objectCounts).entrySet()) {
+				Double best = toReturn.get(metric.getKey());
+				if(best == null || isBetter(metric.getKey(), metric.getValue().doubleValue(), best.doubleValue())) {
+					toReturn.put(metric.getKey(), metric.getValue());
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return boolean - true if a higher value of the metric is better,
+	 * 					 false if a lower value is
+	****************************************************************/
+	public static boolean isHigherBetter(String name) {
+		return name.endsWith(".problemsPerSecond") || name.endsWith(".accuracy");
+	}
+
+	/***************************************************************
+	 * Helper method to test if a value of a metric is better than
+	 * another
+	****************************************************************/
+	private static boolean isBetter(String name, double value, double than) {
+		return isHigherBetter(name) ? value > than : value < than;
+	}
+
+	/***************************************************************
+	 * Compare the metrics of this run to the baseline and report each
+	 * of them
+	 *
+	 * @param baseline - the metrics of the baseline run
+	 * @param current - the metrics of this run
+	 * @param threshold - the largest regression allowed, as a fraction
+	 * 					  of the baseline
+	 * @param out - where to report the metrics
+	 * @return int - the number of metrics which regressed or are
+	 * 				 missing from this run
+	****************************************************************/
+	public static int compare(Map<String, Double> baseline, Map<String, Double> current, double threshold,
+			PrintStream out) {
+		int toReturn = 0;
+		out.println("metric\tbaseline\tcurrent\tchange\tstatus");
+		for(Map.Entry<String, Double> metric : current.entrySet()) {
+			String name = metric.getKey();
+			double value = metric.getValue().doubleValue();
+			Double base = baseline.get(name);
+			if(base == null) {
+				out.println(String.format("%s\t-\t%.3f\t-\tnew", name, value));
+				continue;
+			}
+
+			//Change as a fraction of the baseline, positive is worse
+			double change;
+			boolean regressed;
+			if(name.endsWith(".accuracy")) {
+				change = base.doubleValue() - value;
+				regressed = change > ACCURACY_TOLERANCE;
+			}else {
+				change = base.doubleValue() == 0 ? 0 : (value - base.doubleValue()) / base.doubleValue();
+				if(isHigherBetter(name)) {
+					change = -change;
+				}
+				regressed = change > threshold;
+			}
+			if(regressed) {
+				toReturn++;
+			}
+			out.println(String.format("%s\t%.3f\t%.3f\t%+.1f%%\t%s", name, base.doubleValue(), value, change * 100,
+					regressed ? "REGRESSED" : "ok"));
+		}
+
+		//A metric which is no longer measured could be hiding a regression
+		for(String name : new TreeMap<String, Double>(baseline).keySet()) {
+			if(!current.containsKey(name)) {
+				toReturn++;
+				out.println(String.format("%s\t%.3f\t-\t-\tMISSING", name, baseline.get(name).doubleValue()));
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Read a baseline stored by store()
+	 *
+	 * @param file - the baseline file
+	 * @return Map<String, Double> - the metrics by name
+	 * @throws IOException if the baseline can not be read
+	****************************************************************/
+	public static Map<String, Double> load(File file) throws IOException {
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			properties.load(in);
+		}
+		Map<String, Double> toReturn = new TreeMap<String, Double>();
+		for(String name : properties.stringPropertyNames()) {
+			try {
+				toReturn.put(name, Double.valueOf(properties.getProperty(name)));
+			}catch(NumberFormatException e) {
+				throw new IOException("Invalid value for " + name + " in " + file, e);
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Store the metrics as the baseline
+	 *
+	 * @param file - the baseline file
+	 * @param metrics - the metrics by name
+	 * @throws IOException if the baseline can not be written
+	****************************************************************/
+	public static void store(File file, Map<String, Double> metrics) throws IOException {
+		Properties properties = new Properties();
+		for(Map.Entry<String, Double> metric : metrics.entrySet()) {
+			properties.setProperty(metric.getKey(), String.valueOf(metric.getValue()));
+		}
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			properties.store(out, "Baseline of project2.RegressionGate");
+		}
+	}
+
+	/*******************************************************************************
+	 * Run the gate described by the arguments and exit with its result
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		Options options = new Options(args, "update");
+		boolean update = options.isSet("update");
+		File file = new File(options.get("baseline", DEFAULT_BASELINE));
+		double threshold = Double.parseDouble(options.get("threshold", String.valueOf(DEFAULT_THRESHOLD)));
+		int passes = Integer.parseInt(options.get("passes", "3"));
+		int runs = Integer.parseInt(options.get("runs", "3"));
+		String[] split = options.get("objects", "1,4,16").split(",");
+		options.checkUsed();
+		if(threshold < 0 || passes < 1 || runs < 1) {
+			throw new IllegalArgumentException("Invalid gate settings: " + threshold + ", " + passes + ", " + runs);
+		}
+		int[] objectCounts = new int[split.length];
+		for(int i = 0; i < split.length; i++) {
+			objectCounts[i] = Integer.parseInt(split[i].trim());
+		}
+
+		if(!update && !file.exists()) {
+			System.out.println("No baseline at " + file + ", run with --update to store one");
+			System.exit(NO_BASELINE);
+		}
+
+		Map<String, Double> current = collectBest(runs, passes, objectCounts);
+
+		if(update) {
+			store(file, current);
+			System.out.println("Stored " + current.size() + " metrics as the baseline in " + file);
+			return;
+		}
+
+		int regressed = compare(load(file), current, threshold, System.out);
+		System.out.println(String.format("regressed=%d metrics=%d threshold=%.2f", regressed, current.size(), threshold));
+		System.exit(regressed == 0 ? PASSED : REGRESSED);
+	}
+}
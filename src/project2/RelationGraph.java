@@ -0,0 +1,171 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*******************************************************************************
+ * The RelationGraph indexes the relations between the objects of one figure
+ * (inside, above, left-of and overlaps, See RelationScorer.RELATIONS).  In the
+ * figure's values a relation is a string of object names such as above:A,C;
+ * here every object has an int id and every relation is an edge list of ids,
+ * parsed once when the graph is built.
+ *
+ * Renaming an object only changes the name of its id, so MatchUtil can rename
+ * every object of a figure without searching the values for the old names.
+ * writeRelations() then writes the current names back into the relation
+ * values, once, after all of the renames.  A relation naming something which
+ * isn't an object of the figure is left as it is.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class RelationGraph {
+
+	/*** Object names and attribute values by id */
+	private String[] names;
+	private List<HashMap<String, String>> attributes;
+
+	/*** Id of each object by its current name */
+	private HashMap<String, Integer> ids;
+
+	/*** Targets of each relation of each object, edges[id][relation], null when the object doesn't have it */
+	private int[][][] edges;
+
+	/*** Number of edges in the graph */
+	private int edgeCount;
+
+	/***************************************************************
+	 * Constructor which indexes the objects and relations of a figure
+	 *
+	 * @param values - the values of the figure by object name, an
+	 * 				   object's attributes can be null
+	****************************************************************/
+	public RelationGraph(Map<String, HashMap<String, String>> values) {
+		int size = values.size();
+		names = new String[size];
+		attributes = new ArrayList<HashMap<String, String>>(size);
+		ids = new HashMap<String, Integer>(size * 2);
+		edges = new int[size][][];
+
+		//Every object needs an id before the relations can refer to them
+		int id = 0;
+		for(Map.Entry<String, HashMap<String, String>> object : values.entrySet()) {
+			names[id] = object.getKey();
+			attributes.add(object.getValue());
+			ids.put(object.getKey(), Integer.valueOf(id));
+			id++;
+		}
+
+		for(id = 0; id < size; id++) {
+			edges[id] = new int[RelationScorer.RELATIONS.length][];
+			if(attributes.get(id) == null) {
+				continue;
+			}
+			for(int relation = 0; relation < RelationScorer.RELATIONS.length; relation++) {
+				String value = attributes.get(id).get(RelationScorer.RELATIONS[relation]);
+				if(value != null) {
+					edges[id][relation] = parseTargets(value);
+					edgeCount += edges[id][relation] == null ? 0 : edges[id][relation].length;
+				}
+			}
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to read the objects a relation names, null if
+	 * any of them isn't an object of the figure
+	****************************************************************/
+	private int[] parseTargets(String value) {
+		String[] split = value.split(",");
+		int[] toReturn = new int[split.length];
+		for(int i = 0; i < split.length; i++) {
+			Integer target = ids.get(split[i]);
+			if(target == null) {
+				return null;
+			}
+			toReturn[i] = target.intValue();
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Give an object a new name.  Like a HashMap, if another object
+	 * already has the new name it can no longer be found by name.
+	 *
+	 * @param oldName - the current name of the object
+	 * @param newName - the new name of the object
+	 * @return boolean - false if there is no object with the old name
+	****************************************************************/
+	public boolean rename(String oldName, String newName) {
+		Integer id = ids.remove(oldName);
+		if(id == null) {
+			return false;
+		}
+		names[id.intValue()] = newName;
+		ids.put(newName, id);
+		return true;
+	}
+
+	/***************************************************************
+	 * Write the current names of the objects back into the relation
+	 * values, in the attribute maps of the figure the graph was
+	 * built from
+	****************************************************************/
+	public void writeRelations() {
+		StringBuilder value = new StringBuilder();
+		for(int id = 0; id < names.length; id++) {
+			for(int relation = 0; relation < RelationScorer.RELATIONS.length; relation++) {
+				int[] targets = edges[id][relation];
+				if(targets == null) {
+					continue;
+				}
+				value.setLength(0);
+				for(int i = 0; i < targets.length; i++) {
+					value.append(i == 0 ? "" : ",").append(names[targets[i]]);
+				}
+				attributes.get(id).put(RelationScorer.RELATIONS[relation], value.toString());
+			}
+		}
+	}
+
+	/***************************************************************
+	 * @return int - the id of the object with the given name, -1 if
+	 * 				 there is no such object
+	****************************************************************/
+	public int getId(String name) {
+		Integer toReturn = ids.get(name);
+		return toReturn == null ? -1 : toReturn.intValue();
+	}
+
+	/***************************************************************
+	 * @param id - the id of an object
+	 * @param relation - the index of the relation in RelationScorer.RELATIONS
+	 * @return int[] - the ids of the objects the relation names, null
+	 * 				   if the object doesn't have the relation
+	****************************************************************/
+	public int[] getEdges(int id, int relation) {
+		return edges[id][relation];
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int id) {
+		return names[id];
+	}
+
+	public HashMap<String, String> getAttributes(int id) {
+		return attributes.get(id);
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+}
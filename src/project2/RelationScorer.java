@@ -0,0 +1,156 @@
+package project2;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/*******************************************************************************
+ * Scorer which compares how the relations between objects (inside, above,
+ * left-of and overlaps) change across the Matrix.  The relations Figure C is
+ * expected to gain and lose are calculated from Figures A and B, applied to
+ * Figure C, and compared to the relations of the possible answer.  The same is
+ * done down the columns using Figures A, C and B.
+ * 
+ * This is more expensive than the other scorers, so by default it is only used
+ * to break ties between the best answers.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class RelationScorer implements Scorer {
+
+	/*** Name used to configure this scorer */
+	public static final String NAME = "relations";
+
+	/*** Attributes which relate an object to other objects in the figure */
+	public static final String[] RELATIONS = { "inside", "above", "left-of", "overlaps" };
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public int getCost() {
+		return 8;
+	}
+
+	@Override
+	public int score(ProblemAnalysis analysis, HashMap<String, HashMap<String, String>> answerValues) {
+		Set<String> edgesA = getEdges(analysis.getFigureValues("A"));
+		Set<String> edgesB = getEdges(analysis.getFigureValues("B"));
+		Set<String> edgesC = getEdges(analysis.getFigureValues("C"));
+		Set<String> edgesD = getEdges(answerValues);
+
+		//A is to B as C is to the answer and A is to C as B is to the answer
+		int toReturn = scoreAnalogy(edgesA, edgesB, edgesC, edgesD);
+		if(analysis.hasColumns()) {
+			toReturn += scoreAnalogy(edgesA, edgesC, edgesB, edgesD);
+		}
+		return toReturn;
+	}
+
+	@Override
+	public int maxScore(ProblemAnalysis analysis, HashMap<String, HashMap<String, String>> answerValues) {
+
+		//Every expected relation can be found in the answer, for both analogies
+		int toReturn = 0;
+		for(HashMap<String, String> attrs : answerValues.values()) {
+			if(attrs != null) {
+				for(String relation : RELATIONS) {
+					String value = attrs.get(relation);
+					if(value != null) {
+						toReturn += value.split(",").length;
+					}
+				}
+			}
+		}
+		return (analysis.hasColumns() ? 2 : 1) * (5 * toReturn + 3 * RELATIONS.length);
+	}
+
+	/***************************************************************************
+	 * Score how well the relations in the answer figure follow from the change
+	 * in relations between the first two figures.
+	 * 
+	 * @param first - relations in the first example figure
+	 * @param second - relations in the second example figure
+	 * @param prompt - relations in the prompt figure
+	 * @param answer - relations in the possible answer
+	 * @return int - the score, the higher the better
+	 ***************************************************************************/
+	private int scoreAnalogy(Set<String> first, Set<String> second, Set<String> prompt, Set<String> answer) {
+
+		//Apply the relations which were added and removed to the prompt figure
+		Set<String> expected = new HashSet<String>(prompt);
+		for(String edge : first) {
+			if(!second.contains(edge)) {
+				expected.remove(edge);
+			}
+		}
+		for(String edge : second) {
+			if(!first.contains(edge)) {
+				expected.add(edge);
+			}
+		}
+
+		int toReturn = 0;
+
+		//Reward the relations which are in the answer as expected and dock the rest
+		for(String edge : expected) {
+			toReturn += answer.contains(edge) ? 5 : -5;
+		}
+		for(String edge : answer) {
+			if(!expected.contains(edge)) {
+				toReturn -= 5;
+			}
+		}
+
+		//The number of each relation should change by the same amount
+		for(String relation : RELATIONS) {
+			int exampleChange = count(second, relation) - count(first, relation);
+			int testChange = count(answer, relation) - count(prompt, relation);
+			if(exampleChange == testChange) {
+				toReturn += 3;
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************************
+	 * Helper method to collect the relations in a figure as edges in the form
+	 * "object:relation:otherObject"
+	 * 
+	 * @param values - the values of the figure
+	 * @return Set<String> - the relation edges in the figure
+	 ***************************************************************************/
+	private Set<String> getEdges(HashMap<String, HashMap<String, String>> values) {
+		Set<String> toReturn = new HashSet<String>();
+		for(String objectName : values.keySet()) {
+			HashMap<String, String> attrs = values.get(objectName);
+			if(attrs != null) {
+				for(String relation : RELATIONS) {
+					String value = attrs.get(relation);
+					if(value != null) {
+						for(String target : value.split(",")) {
+							toReturn.add(objectName + ":" + relation + ":" + target);
+						}
+					}
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************************
+	 * Helper method to count the edges for the given relation
+	 ***************************************************************************/
+	private int count(Set<String> edges, String relation) {
+		int toReturn = 0;
+		String key = ":" + relation + ":";
+		for(String edge : edges) {
+			if(edge.contains(key)) {
+				toReturn++;
+			}
+		}
+		return toReturn;
+	}
+}
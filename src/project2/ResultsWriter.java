@@ -0,0 +1,509 @@
+package project2;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * The ResultsWriter writes the results of a run on its own thread, so the
+ * threads solving the problems never wait on a file or on System.out.  It
+ * writes Results.txt in the same layout Project2 always has, and can also write
+ * one JSON object per line (JSONL) for each problem with its scores and the time
+ * it took.
+ *
+ * Every line of the output is given a ticket, in order, when the run is laid
+ * out (See beginSet, reserve and endSet).  Problems can then be completed in
+ * any order from any thread; the writer keeps the lines which arrive early
+ * until every line before them has been written, so the output is always in
+ * the order the problems were given.
+ *
+ * Lines are handed to the writer thread through a bounded queue.  Adding to it
+ * only waits when the writer has fallen a whole queue behind, which is counted
+ * as a stall (See getStalls).
+ *
+ * When given a CheckpointJournal, every problem is also recorded in the
+ * journal as soon as it arrives, rather than when its turn to be written
+ * comes, so a run which dies loses as little as possible.  Problems restored
+ * from the journal (See restore) are written but not recorded again.
+ *
+ * Closing the writer says that no more lines are coming, so it should only be
+ * done once the threads solving the problems have ended.  Any reserved problem
+ * which was never completed or failed by then is left out rather than waited
+ * for, and reported as an error by close.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ResultsWriter implements Closeable {
+
+	/*** Number of lines which can wait for the writer thread by default */
+	public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+	/*** Kinds of lines */
+	private static final int SET = 0;
+	private static final int END_SET = 1;
+	private static final int PROBLEM = 2;
+	private static final int ERROR = 3;
+	private static final int CLOSE = 4;
+
+	/*** Lines waiting for the writer thread */
+	private BlockingQueue<Line> queue;
+
+	/*** The next ticket to hand out */
+	private AtomicLong nextTicket;
+
+	/*** Times adding a line had to wait for the writer thread */
+	private AtomicLong stalls;
+
+	/*** Where the lines are written, jsonl, progress and journal can be null */
+	private PrintWriter results;
+	private PrintWriter jsonl;
+	private PrintStream progress;
+	private CheckpointJournal journal;
+
+	/*** Thread which writes the lines */
+	private Thread thread;
+
+	/*** The first error met by the writer thread */
+	private volatile IOException failure;
+
+	/*** Whether the writer thread has finished, so lines are no longer taken */
+	private volatile boolean finished;
+
+	/***************************************************************
+	 * Constructor which opens the files and starts the writer thread
+	 *
+	 * @param results - the Results.txt file to write
+	 * @param jsonl - the JSONL file to write, null for none
+	 * @param progress - where to print progress for each problem, null
+	 * 					 for none
+	 * @param queueSize - number of lines which can wait for the writer
+	 * @throws IOException if a file can not be created
+	****************************************************************/
+	public ResultsWriter(File results, File jsonl, PrintStream progress, int queueSize) throws IOException {
+		this(results, jsonl, progress, null, queueSize);
+	}
+
+	/***************************************************************
+	 * Constructor which opens the files and starts the writer thread.
+	 * The journal is closed when the writer is.
+	 *
+	 * @param results - the Results.txt file to write
+	 * @param jsonl - the JSONL file to write, null for none
+	 * @param progress - where to print progress for each problem, null
+	 * 					 for none
+	 * @param journal - the journal to record each problem in, null for
+	 * 					none
+	 * @param queueSize - number of lines which can wait for the writer
+	 * @throws IOException if a file can not be created
+	****************************************************************/
+	public ResultsWriter(File results, File jsonl, PrintStream progress, CheckpointJournal journal, int queueSize)
+			throws IOException {
+		if(queueSize < 1) {
+			throw new IllegalArgumentException("Queue size must be at least 1");
+		}
+		this.queue = new ArrayBlockingQueue<Line>(queueSize);
+		this.nextTicket = new AtomicLong();
+		this.stalls = new AtomicLong();
+		this.results = open(results);
+		try {
+			this.jsonl = jsonl == null ? null : open(jsonl);
+		}catch(IOException e) {
+			this.results.close();
+			throw e;
+		}
+		this.progress = progress;
+		this.journal = journal;
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLines();
+			}
+		}, "results-writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/***************************************************************
+	 * Start a problem set, writing its name and underline
+	 *
+	 * @param setName - name of the problem set
+	****************************************************************/
+	public void beginSet(String setName) {
+		Line line = new Line(reserve(), SET);
+		line.setName = setName;
+		add(line);
+	}
+
+	/***************************************************************
+	 * End the current problem set, writing a blank line
+	****************************************************************/
+	public void endSet() {
+		add(new Line(reserve(), END_SET));
+	}
+
+	/***************************************************************
+	 * Reserve the place of a problem in the output
+	 *
+	 * @return long - the ticket to complete the problem with
+	****************************************************************/
+	public long reserve() {
+		return nextTicket.getAndIncrement();
+	}
+
+	/***************************************************************
+	 * Write the result of a problem in its reserved place.  The
+	 * answer must already have been given to the problem.
+	 *
+	 * @param ticket - the ticket from reserve
+	 * @param setName - name of the problem set
+	 * @param problem - the problem which was solved
+	 * @param result - the result of solving it
+	 * @param nanos - how long it took to solve
+	****************************************************************/
+	public void complete(long ticket, String setName, RavensProblem problem, SolveResult result, long nanos) {
+		complete(ticket, setName, problem, result, nanos, false);
+	}
+
+	/***************************************************************
+	 * Write the result an earlier run recorded for a problem in its
+	 * reserved place.  The answer must already have been given to the
+	 * problem.
+	 *
+	 * @param ticket - the ticket from reserve
+	 * @param setName - name of the problem set
+	 * @param problem - the problem
+	 * @param entry - the result recorded in the journal
+	****************************************************************/
+	public void restore(long ticket, String setName, RavensProblem problem, CheckpointJournal.Entry entry) {
+		complete(ticket, setName, problem, entry.toResult(), entry.getNanos(), true);
+	}
+
+	/***************************************************************
+	 * Helper method to queue a problem's line
+	****************************************************************/
+	private void complete(long ticket, String setName, RavensProblem problem, SolveResult result, long nanos,
+			boolean restored) {
+		Line line = new Line(ticket, PROBLEM);
+		line.setName = setName;
+		line.problemName = problem.getName();
+		line.problemType = problem.getProblemType();
+		line.givenAnswer = problem.getGivenAnswer();
+		line.correct = problem.getCorrect();
+		line.correctAnswer = problem.checkAnswer("");
+		line.scores = result.getScores();
+		line.nanos = nanos;
+		line.deadlineHit = result.isDeadlineHit();
+		line.restored = restored;
+		add(line);
+	}
+
+	/***************************************************************
+	 * Write that a problem could not be solved in its reserved place
+	 *
+	 * @param ticket - the ticket from reserve
+	 * @param setName - name of the problem set
+	 * @param problem - the problem which failed
+	 * @param error - what went wrong
+	****************************************************************/
+	public void fail(long ticket, String setName, RavensProblem problem, Throwable error) {
+		Line line = new Line(ticket, ERROR);
+		line.setName = setName;
+		line.problemName = problem.getName();
+		line.problemType = problem.getProblemType();
+		line.error = String.valueOf(error);
+		add(line);
+	}
+
+	/***************************************************************
+	 * Wait for every reserved line to be written and close the files.
+	 * Every reserved problem should have been completed or failed, any
+	 * which weren't are left out.
+	 *
+	 * @throws IOException if any line could not be written, or a
+	 * 					   reserved problem was never completed
+	****************************************************************/
+	@Override
+	public void close() throws IOException {
+		if(thread.isAlive()) {
+			add(new Line(reserve(), CLOSE));
+			try {
+				thread.join();
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+	/***************************************************************
+	 * @return long - the number of times adding a line had to wait
+	 * 				  for the writer thread
+	****************************************************************/
+	public long getStalls() {
+		return stalls.get();
+	}
+
+	/***************************************************************
+	 * Helper method to hand a line to the writer thread, only waiting
+	 * when the queue is full.  Lines added once the writer thread has
+	 * finished are dropped.
+	****************************************************************/
+	private void add(Line line) {
+		if(finished || queue.offer(line)) {
+			return;
+		}
+		stalls.incrementAndGet();
+		try {
+			queue.put(line);
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while writing the results", e);
+		}
+	}
+
+	/***************************************************************
+	 * Write the lines in ticket order until the writer is closed,
+	 * keeping the lines which arrive early until their turn
+	****************************************************************/
+	private void writeLines() {
+		HashMap<Long, Line> early = new HashMap<Long, Line>();
+		long next = 0;
+		try {
+			while(true) {
+				Line line = queue.take();
+				boolean closing = line.kind == CLOSE;
+				if(line.kind == PROBLEM && !line.restored) {
+					record(line);
+				}
+				early.put(Long.valueOf(line.ticket), line);
+				while((line = early.remove(Long.valueOf(next))) != null) {
+					next++;
+					if(line.kind == CLOSE) {
+						return;
+					}
+					write(line);
+				}
+
+				//Every line added before closing has been taken, so the ones still missing will never come
+				if(closing) {
+					writeMissing(early, next);
+					return;
+				}
+
+				//Nothing else to write yet, so push what has been written out to the files
+				if(queue.isEmpty()) {
+					flush();
+				}
+			}
+		}catch(InterruptedException e) {
+			failure = new IOException("Results writer interrupted");
+		}finally {
+			finished = true;
+			queue.clear();
+			results.close();
+			if(jsonl != null) {
+				jsonl.close();
+			}
+			if(journal != null) {
+				try {
+					journal.close();
+				}catch(IOException e) {
+					failure = failure == null ? e : failure;
+				}
+			}
+			if(failure == null && (results.checkError() || (jsonl != null && jsonl.checkError()))) {
+				failure = new IOException("Could not write the results");
+			}
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to write the lines left once the writer is closed,
+	 * skipping the problems which were never completed or failed
+	****************************************************************/
+	private void writeMissing(HashMap<Long, Line> early, long next) {
+		long missing = 0;
+		for(; ; next++) {
+			Line line = early.remove(Long.valueOf(next));
+			if(line == null) {
+				missing++;
+			}else if(line.kind == CLOSE) {
+				break;
+			}else {
+				write(line);
+			}
+		}
+		flush();
+		if(failure == null) {
+			failure = new IOException(missing + " problems were never completed");
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to write one line to each output
+	****************************************************************/
+	private void write(Line line) {
+		switch(line.kind) {
+			case SET:
+				results.println(line.setName);
+				results.println("-----------");
+				break;
+			case END_SET:
+				results.println("");
+				break;
+			case PROBLEM:
+				results.println(line.problemName + ": " + line.givenAnswer + " " + line.correct + " (Correct Answer: "
+						+ line.correctAnswer + ")");
+				if(progress != null) {
+					progress.println("Solving Question: " + line.problemName + (line.deadlineHit ? " - Deadline hit" : "")
+							+ (line.restored ? " - Restored from journal" : " - Finished!"));
+				}
+				break;
+			case ERROR:
+				results.println(line.problemName + ": Error; no answer given.");
+				if(progress != null) {
+					progress.println("Error encountered in " + line.setName + " problem " + line.problemName + ": "
+							+ line.error);
+				}
+				break;
+			default:
+				break;
+		}
+		if(jsonl != null && (line.kind == PROBLEM || line.kind == ERROR)) {
+			jsonl.println(toJson(line));
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to record a problem in the journal.  If the journal
+	 * fails, the error is kept for close and the results are still
+	 * written without it.
+	****************************************************************/
+	private void record(Line line) {
+		if(journal == null) {
+			return;
+		}
+		try {
+			journal.append(new CheckpointJournal.Entry(line.setName, line.problemName, line.problemType,
+					line.givenAnswer, line.correctAnswer, line.scores, line.nanos, line.deadlineHit));
+		}catch(IOException e) {
+			failure = failure == null ? e : failure;
+			try {
+				journal.close();
+			}catch(IOException closeError) {
+				//The first error is the one reported
+			}
+			journal = null;
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to flush the outputs, the journal is handed to the
+	 * operating system but not forced to disk
+	****************************************************************/
+	private void flush() {
+		if(journal != null) {
+			try {
+				journal.flush();
+			}catch(IOException e) {
+				failure = failure == null ? e : failure;
+			}
+		}
+		results.flush();
+		if(jsonl != null) {
+			jsonl.flush();
+		}
+		if(progress != null) {
+			progress.flush();
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to describe a problem line as one JSON object
+	****************************************************************/
+	private static String toJson(Line line) {
+		StringBuilder toReturn = new StringBuilder("{");
+		appendField(toReturn, "set", line.setName).append(',');
+		appendField(toReturn, "problem", line.problemName).append(',');
+		appendField(toReturn, "type", line.problemType).append(',');
+		if(line.kind == ERROR) {
+			appendField(toReturn, "error", line.error);
+			return toReturn.append('}').toString();
+		}
+		appendField(toReturn, "answer", line.givenAnswer).append(',');
+		appendField(toReturn, "correctAnswer", line.correctAnswer).append(',');
+		toReturn.append("\"correct\":").append(line.correct.equals("Correct")).append(',');
+		toReturn.append("\"scores\":[");
+		for(int i = 0; i < line.scores.length; i++) {
+			toReturn.append(i == 0 ? "" : ",").append(line.scores[i]);
+		}
+		toReturn.append("],\"millis\":").append(String.format("%.3f", line.nanos / 1e6));
+		toReturn.append(",\"deadlineHit\":").append(line.deadlineHit);
+		return toReturn.append('}').toString();
+	}
+
+	/***************************************************************
+	 * Helper method to append "name":"value" with the value escaped
+	****************************************************************/
+	private static StringBuilder appendField(StringBuilder json, String name, String value) {
+		json.append('"').append(name).append("\":");
+		if(value == null) {
+			return json.append("null");
+		}
+		json.append('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			}else if(c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			}else {
+				json.append(c);
+			}
+		}
+		return json.append('"');
+	}
+
+	/***************************************************************
+	 * Helper method to open a file for buffered writing
+	****************************************************************/
+	private static PrintWriter open(File file) throws IOException {
+		return new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)));
+	}
+
+	/*******************************************************************************
+	 * One line of the output and everything needed to write it
+	 *******************************************************************************/
+	private static class Line {
+		private long ticket;
+		private int kind;
+		private String setName;
+		private String problemName;
+		private String problemType;
+		private String givenAnswer;
+		private String correct;
+		private String correctAnswer;
+		private int[] scores;
+		private long nanos;
+		private boolean deadlineHit;
+		private boolean restored;
+		private String error;
+
+		private Line(long ticket, int kind) {
+			this.ticket = ticket;
+			this.kind = kind;
+		}
+	}
+}
@@ -0,0 +1,397 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*******************************************************************************
+ * The ScalingBenchmark measures how the Agent and the utilities it spends its
+ * time in grow with the size of a problem.  Problems are made by the
+ * ProblemGenerator with 1, 2, 4 ... objects per figure and a few numbers of
+ * extra attributes per object, and each stage is timed on the same problems:
+ *
+ *   agent       - Agent.solve of the whole problem
+ *   match       - MatchUtil.matchObjects of figure A and figure B
+ *   frames      - FrameUtil.compareFrames of figures A and B
+ *   difference  - SemanticNetworkUtil.compareDifference of the network from
+ *                 A to B and a copy of it
+ *
+ * Every point reports the nanoseconds and bytes allocated per operation and
+ * the passes of MatchUtil's search for a match per operation, and is written
+ * to a CSV file.  The slope of log(time) against log(objects) is printed for
+ * each stage, so a claim such as "matching is cubic" is a number which can be
+ * tracked.  Once an operation of a stage takes longer than the limit, the
+ * larger sizes are skipped for that stage.
+ *
+ *   java project2.ScalingBenchmark [--objects 1,2,4,...] [--extra 0,8]
+ *        [--problems n] [--reps n] [--type 2x1|2x2] [--budget ms] [--limit ms]
+ *        [--csv file]
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ScalingBenchmark {
+
+	/*** The stages which are timed */
+	public static final List<String> STAGES = Arrays.asList("agent", "match", "frames", "difference");
+
+	/*** File the points are written to by default */
+	public static final String DEFAULT_CSV = "Scaling.csv";
+
+	/*** Settings */
+	private String problemType;
+	private int problems;
+	private int reps;
+	private long budgetMillis;
+	private long limitNanos;
+
+	/*** Where each point is printed as it is measured, can be null */
+	private PrintStream progress;
+
+	/*** Utilities being timed */
+	private MatchUtil matchUtil;
+	private FrameUtil frameUtil;
+	private SemanticNetworkUtil smUtil;
+
+	/***************************************************************
+	 * Constructor with values
+	 *
+	 * @param problemType - "2x1" or "2x2"
+	 * @param problems - problems generated for each point
+	 * @param reps - times each stage is run on each problem
+	 * @param budgetMillis - the Agent's time budget, 0 for no limit
+	 * @param limitMillis - time of one operation after which the larger
+	 * 						sizes of a stage are skipped
+	 * @throws IllegalArgumentException if a setting is out of range
+	****************************************************************/
+	public ScalingBenchmark(String problemType, int problems, int reps, long budgetMillis, long limitMillis) {
+		if(problems < 1 || reps < 1 || budgetMillis < 0 || limitMillis < 1) {
+			throw new IllegalArgumentException("Invalid benchmark settings");
+		}
+		this.problemType = problemType;
+		this.problems = problems;
+		this.reps = reps;
+		this.budgetMillis = budgetMillis;
+		this.limitNanos = limitMillis * 1000000L;
+		this.matchUtil = new MatchUtil();
+		this.frameUtil = new FrameUtil();
+		this.smUtil = new SemanticNetworkUtil();
+	}
+
+	/***************************************************************
+	 * Print each point as it is measured, the largest sizes can take
+	 * minutes
+	 * @param progress - where to print the points, null for nowhere
+	****************************************************************/
+	public void setProgress(PrintStream progress) {
+		this.progress = progress;
+	}
+
+	/***************************************************************
+	 * Run the benchmark for every size
+	 *
+	 * @param objectCounts - the objects per figure to measure, smallest first
+	 * @param extraCounts - the extra attributes per object to measure
+	 * @return List<Point> - the points measured, by extra attributes,
+	 * 						 then stage, then objects
+	****************************************************************/
+	public List<Point> run(int[] objectCounts, int[] extraCounts) {
+		List<Point> toReturn = new ArrayList<Point>();
+		for(int extra : extraCounts) {
+			Map<String, Boolean> skipped = new HashMap<String, Boolean>();
+			for(int objects : objectCounts) {
+				ProblemGenerator generator = new ProblemGenerator(problemType, objects, 4, extra,
+						Arrays.asList("inside", "above"), 0.3, Arrays.asList("fill", "shape", "size", "angle"), 0.5, 1);
+				List<RavensProblem> generated = new ArrayList<RavensProblem>();
+				for(int i = 1; i <= problems; i++) {
+					generated.add(generator.generateProblem(i));
+				}
+
+				for(String stage : STAGES) {
+					if(skipped.containsKey(stage)) {
+						continue;
+					}
+					Point point = measure(stage, objects, extra, generated);
+					toReturn.add(point);
+					if(progress != null) {
+						progress.println(point.toCsv().replace(',', '\t'));
+					}
+					if(point.getNanosPerOp() > limitNanos) {
+						skipped.put(stage, Boolean.TRUE);
+					}
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Time one stage on the generated problems.  The first problem is
+	 * run once first so the JIT has compiled the stage, and a point
+	 * stops early once it has run for several times the limit.
+	****************************************************************/
+	private Point measure(String stage, int objects, int extra, List<RavensProblem> generated) {
+		Agent agent = new Agent();
+		agent.setVerbose(false);
+		agent.setTimeBudget(budgetMillis);
+
+		//Warm up run, which isn't counted
+		runStage(stage, agent, prepare(stage, generated.get(0)));
+
+		int ops = 0;
+		long nanos = 0;
+		long bytes = 0;
+		long iterations = 0;
+		int deadlineHits = 0;
+		measuring:
+		for(RavensProblem problem : generated) {
+			for(int rep = 0; rep < reps; rep++) {
+				Object[] input = prepare(stage, problem);
+				long allocated = ScorerBenchmark.getAllocatedBytes();
+				long matchIterations = MatchUtil.getMatchIterations();
+				long start = System.nanoTime();
+				boolean deadlineHit = runStage(stage, agent, input);
+				nanos += System.nanoTime() - start;
+				bytes += allocated < 0 ? 0 : ScorerBenchmark.getAllocatedBytes() - allocated;
+				iterations += MatchUtil.getMatchIterations() - matchIterations;
+				deadlineHits += deadlineHit ? 1 : 0;
+				ops++;
+				if(nanos > 4 * limitNanos) {
+					break measuring;
+				}
+			}
+		}
+		return new Point(stage, objects, extra, ops, nanos / ops,
+				ScorerBenchmark.getAllocatedBytes() < 0 ? -1 : bytes / ops, (double) iterations / ops, deadlineHits);
+	}
+
+	/***************************************************************
+	 * Helper method to build the input of a stage, outside of the
+	 * time measured.  The figures are fresh copies each time since
+	 * matchObjects changes the names of the objects.  compareFrames
+	 * compares every pair of objects whatever their names, so it is
+	 * given the figures unmatched.  compareDifference gives up at once
+	 * on networks of different sizes, so the network from A to B is
+	 * compared to a copy of itself to score every object.  It is made
+	 * from B with the names the generator gave it, which are already
+	 * the right match, since matching is slow on large figures.
+	****************************************************************/
+	private Object[] prepare(String stage, RavensProblem problem) {
+		HashMap<String, RavensFigure> figures = problem.getFigures();
+		HashMap<String, HashMap<String, String>> figureA = matchUtil.getValuesMap(figures.get("A"));
+		HashMap<String, HashMap<String, String>> figureB = matchUtil.getValuesMap(figures.get("B"));
+		switch(stage) {
+			case "agent":
+				return new Object[] { problem };
+			case "match":
+			case "frames":
+				return new Object[] { figureA, figureB };
+			case "difference":
+				HashMap<String, HashMap<String, String>> matchedB = rename(figureB, "B-", "A-");
+				return new Object[] { smUtil.calculateDifference(figureA, matchedB),
+						smUtil.calculateDifference(figureA, matchedB) };
+			default:
+				throw new IllegalArgumentException("Unknown stage: " + stage + ", expected " + STAGES);
+		}
+	}
+
+	/***************************************************************
+	 * Helper method to copy a figure's values with the start of every
+	 * object name, and of every value naming an object, replaced
+	****************************************************************/
+	private static HashMap<String, HashMap<String, String>> rename(HashMap<String, HashMap<String, String>> values,
+			String from, String to) {
+		HashMap<String, HashMap<String, String>> toReturn = new HashMap<String, HashMap<String, String>>();
+		for(Map.Entry<String, HashMap<String, String>> object : values.entrySet()) {
+			HashMap<String, String> attributes = new HashMap<String, String>();
+			for(Map.Entry<String, String> attribute : object.getValue().entrySet()) {
+				attributes.put(attribute.getKey(), attribute.getValue().replace(from, to));
+			}
+			toReturn.put(object.getKey().replace(from, to), attributes);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to run a stage once on its input
+	 *
+	 * @return boolean - true if the Agent ran out of time
+	****************************************************************/
+	@SuppressWarnings("unchecked")
+	private boolean runStage(String stage, Agent agent, Object[] input) {
+		switch(stage) {
+			case "agent":
+				return agent.solve((RavensProblem) input[0], null).isDeadlineHit();
+			case "match":
+				matchUtil.matchObjects((HashMap<String, HashMap<String, String>>) input[0],
+						(HashMap<String, HashMap<String, String>>) input[1]);
+				return false;
+			case "frames":
+				frameUtil.compareFrames((HashMap<String, HashMap<String, String>>) input[0],
+						(HashMap<String, HashMap<String, String>>) input[1]);
+				return false;
+			default:
+				smUtil.compareDifference((List<SemanticNetworkObj>) input[0], (List<SemanticNetworkObj>) input[1]);
+				return false;
+		}
+	}
+
+	/***************************************************************
+	 * Fit log(value) = slope * log(objects) + c by least squares, over
+	 * the points of one stage with at least two objects
+	 *
+	 * @param points - the points measured
+	 * @param stage - the stage to fit
+	 * @param extra - the extra attributes of the points to fit
+	 * @param iterations - true to fit the match passes, false the time
+	 * @return double - the slope, NaN if there are fewer than two
+	 * 					points to fit
+	****************************************************************/
+	public static double getSlope(List<Point> points, String stage, int extra, boolean iterations) {
+		int n = 0;
+		double sumX = 0;
+		double sumY = 0;
+		double sumXY = 0;
+		double sumXX = 0;
+		for(Point point : points) {
+			double value = iterations ? point.getIterationsPerOp() : point.getNanosPerOp();
+			if(!point.getStage().equals(stage) || point.getExtraAttributes() != extra || point.getObjects() < 2
+					|| value <= 0) {
+				continue;
+			}
+			double x = Math.log(point.getObjects());
+			double y = Math.log(value);
+			n++;
+			sumX += x;
+			sumY += y;
+			sumXY += x * y;
+			sumXX += x * x;
+		}
+		double denominator = n * sumXX - sumX * sumX;
+		return n < 2 || denominator == 0 ? Double.NaN : (n * sumXY - sumX * sumY) / denominator;
+	}
+
+	/*******************************************************************************
+	 * Run the benchmark described by the arguments
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		Options options = new Options(args);
+		int[] objectCounts = parseInts(options.get("objects", "1,2,4,8,16,32,64,128,256"));
+		int[] extraCounts = parseInts(options.get("extra", "0,8"));
+		ScalingBenchmark benchmark = new ScalingBenchmark(options.get("type", "2x2"),
+				Integer.parseInt(options.get("problems", "3")), Integer.parseInt(options.get("reps", "3")),
+				Long.parseLong(options.get("budget", "0")), Long.parseLong(options.get("limit", "500")));
+		File csv = new File(options.get("csv", DEFAULT_CSV));
+		options.checkUsed();
+
+		System.out.println(Point.CSV_HEADER.replace(',', '\t'));
+		benchmark.setProgress(System.out);
+		List<Point> points = benchmark.run(objectCounts, extraCounts);
+
+		try (PrintWriter writer = new PrintWriter(csv, StandardCharsets.UTF_8.name())) {
+			writer.println(Point.CSV_HEADER);
+			for(Point point : points) {
+				writer.println(point.toCsv());
+			}
+		}
+
+		System.out.println();
+		for(int extra : extraCounts) {
+			for(String stage : STAGES) {
+				System.out.println(String.format("stage=%s extraAttributes=%d timeSlope=%.2f iterationSlope=%.2f", stage,
+						extra, getSlope(points, stage, extra, false), getSlope(points, stage, extra, true)));
+			}
+		}
+		System.out.println("Wrote " + points.size() + " points to " + csv);
+	}
+
+	/***************************************************************
+	 * Helper method to read a list of numbers such as 1,2,4
+	****************************************************************/
+	private static int[] parseInts(String list) {
+		String[] split = list.split(",");
+		int[] toReturn = new int[split.length];
+		for(int i = 0; i < split.length; i++) {
+			toReturn[i] = Integer.parseInt(split[i].trim());
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * One stage measured at one size
+	 *******************************************************************************/
+	public static class Point {
+
+		/*** Header of the CSV file, in the order of toCsv */
+		public static final String CSV_HEADER = "stage,objects,extraAttributes,ops,nsPerOp,bytesPerOp,"
+				+ "matchIterationsPerOp,deadlineHits";
+
+		private String stage;
+		private int objects;
+		private int extraAttributes;
+		private int ops;
+		private long nanosPerOp;
+		private long bytesPerOp;
+		private double iterationsPerOp;
+		private int deadlineHits;
+
+		public Point(String stage, int objects, int extraAttributes, int ops, long nanosPerOp, long bytesPerOp,
+				double iterationsPerOp, int deadlineHits) {
+			this.stage = stage;
+			this.objects = objects;
+			this.extraAttributes = extraAttributes;
+			this.ops = ops;
+			this.nanosPerOp = nanosPerOp;
+			this.bytesPerOp = bytesPerOp;
+			this.iterationsPerOp = iterationsPerOp;
+			this.deadlineHits = deadlineHits;
+		}
+
+		public String getStage() {
+			return stage;
+		}
+
+		public int getObjects() {
+			return objects;
+		}
+
+		public int getExtraAttributes() {
+			return extraAttributes;
+		}
+
+		public int getOps() {
+			return ops;
+		}
+
+		public long getNanosPerOp() {
+			return nanosPerOp;
+		}
+
+		/*** @return long - bytes allocated per operation, -1 if the JVM can not measure it */
+		public long getBytesPerOp() {
+			return bytesPerOp;
+		}
+
+		public double getIterationsPerOp() {
+			return iterationsPerOp;
+		}
+
+		public int getDeadlineHits() {
+			return deadlineHits;
+		}
+
+		/***************************************************************
+		 * @return String - the point as a line of the CSV file
+		****************************************************************/
+		public String toCsv() {
+			return String.format("%s,%d,%d,%d,%d,%d,%.1f,%d", stage, objects, extraAttributes, ops, nanosPerOp,
+					bytesPerOp, iterationsPerOp, deadlineHits);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package project2;
+
+import java.util.HashMap;
+
+/*******************************************************************************
+ * A Scorer is one approach the Agent can use to decide how well a possible
+ * answer completes a Raven's Matrix.  Scorers are combined by the
+ * ScorerPipeline, which adds up their weighted scores for each answer.
+ * 
+ * Each Scorer also reports a relative cost and can give an upper bound for the
+ * score it would award an answer, so that the pipeline can run cheap scorers
+ * first and skip expensive ones once an answer can no longer win.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public interface Scorer {
+
+	/***************************************************************************
+	 * @return String - the unique name used to configure this scorer
+	 ***************************************************************************/
+	public String getName();
+
+	/***************************************************************************
+	 * @return int - the relative cost of running this scorer, cheapest first
+	 ***************************************************************************/
+	public int getCost();
+
+	/***************************************************************************
+	 * Score how well the possible answer completes the analyzed problem
+	 * 
+	 * @param analysis - the figures and baselines calculated for the problem
+	 * @param answerValues - the values of the possible answer, already matched
+	 * 						 to the objects in the problem figures
+	 * @return int - the score, the higher the better
+	 ***************************************************************************/
+	public int score(ProblemAnalysis analysis, HashMap<String, HashMap<String, String>> answerValues);
+
+	/***************************************************************************
+	 * Calculate a score that score() will never exceed for the possible answer.
+	 * This should be much cheaper than calculating the score itself.
+	 * 
+	 * @param analysis - the figures and baselines calculated for the problem
+	 * @param answerValues - the values of the possible answer, already matched
+	 * 						 to the objects in the problem figures
+	 * @return int - the upper bound for the score
+	 ***************************************************************************/
+	public int maxScore(ProblemAnalysis analysis, HashMap<String, HashMap<String, String>> answerValues);
+}
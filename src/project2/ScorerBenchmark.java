@@ -0,0 +1,112 @@
+package project2;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/*******************************************************************************
+ * Compare the throughput and the accuracy of different scorer pipelines on the
+ * problems in the Problems folder.  Every argument is a pipeline spec (See
+ * ScorerPipeline), for example:
+ * 
+ *   java project2.ScorerBenchmark frames,row,column frames,-row,-column
+ * 
+ * Each pipeline is warmed up once and then timed over several passes of the
+ * corpus, separately for the 2x1 and 2x2 problems.  The bytes allocated per
+ * problem are reported when the JVM can measure them.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ScorerBenchmark {
+
+	/*** Number of timed passes over the problems for each pipeline */
+	private static final int PASSES = 5;
+
+	/*******************************************************************************
+	 * Run the benchmark for each pipeline spec given as an argument
+	 *******************************************************************************/
+	public static void main(String[] args) {
+		String[] specs = args.length > 0 ? args : new String[] { ScorerPipeline.DEFAULT_SPEC };
+		List<ProblemSet> sets = ProblemLoader.loadSets(new File(ProblemLoader.PROBLEMS_FOLDER));
+
+		System.out.println("pipeline\ttype\tproblems/s\taccuracy\tbytes/problem");
+		for(String spec : specs) {
+			for(String type : new String[] { "2x1", "2x2" }) {
+				//The agent's progress would only add noise to the timings
+				Agent agent = new Agent(ScorerPipeline.fromSpec(spec));
+				agent.setVerbose(false);
+				double[] result = measure(agent, sets, type, PASSES);
+				System.out.println(String.format("%s\t%s\t%.1f\t%.3f\t%s", spec, type, result[0], result[1],
+						result[2] < 0 ? "n/a" : String.valueOf((long) result[2])));
+			}
+		}
+	}
+
+	/*******************************************************************************
+	 * Time the agent on every problem of the given type, after a warm up pass so
+	 * the timed passes are not measuring the JIT
+	 * 
+	 * @param agent - the agent to time
+	 * @param sets - the problem sets
+	 * @param type - the type of problem to solve, "2x1" or "2x2"
+	 * @param passes - the number of timed passes over the problems
+	 * @return double[] - the problems solved per second, the accuracy and the
+	 * 					  bytes allocated per problem, -1 if the JVM can not
+	 * 					  measure it
+	 *******************************************************************************/
+	public static double[] measure(Agent agent, List<ProblemSet> sets, String type, int passes) {
+		run(agent, sets, type);
+
+		int solved = 0;
+		int correct = 0;
+		long allocated = getAllocatedBytes();
+		long start = System.nanoTime();
+		for(int pass = 0; pass < passes; pass++) {
+			int[] counts = run(agent, sets, type);
+			solved += counts[0];
+			correct += counts[1];
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		allocated = getAllocatedBytes() - allocated;
+
+		return new double[] { solved / seconds, solved == 0 ? 0.0 : (double) correct / solved,
+				allocated < 0 || solved == 0 ? -1 : (double) allocated / solved };
+	}
+
+	/*******************************************************************************
+	 * Helper method to get the bytes allocated by the current thread so far
+	 * 
+	 * @return long - the bytes allocated, or -1 if the JVM can not measure it
+	 *******************************************************************************/
+	public static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if(sunBean.isThreadAllocatedMemorySupported()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/*******************************************************************************
+	 * Solve every problem of the given type in the sets once
+	 * 
+	 * @return int[] - the number of problems solved and the number answered correctly
+	 *******************************************************************************/
+	private static int[] run(Agent agent, List<ProblemSet> sets, String type) {
+		int[] toReturn = new int[2];
+		for(ProblemSet set : sets) {
+			for(RavensProblem problem : set.getProblems()) {
+				if(problem.getProblemType().equals(type)) {
+					String answer = agent.solve(problem, null).getAnswer();
+					toReturn[0]++;
+					if(answer.equals(problem.checkAnswer(answer))) {
+						toReturn[1]++;
+					}
+				}
+			}
+		}
+		return toReturn;
+	}
+}
@@ -0,0 +1,386 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/*******************************************************************************
+ * The ScorerPipeline combines any number of Scorers into the final score the
+ * Agent gives each possible answer.  Each stage of the pipeline has a weight
+ * and can be switched on or off, so different combinations of approaches can
+ * be compared without changing the Agent.
+ *
+ * Stages run from the cheapest to the most expensive.  The cheapest stage is
+ * run for every answer and used to decide the order the answers are scored
+ * in.  The remaining stages are only run while an answer can still reach the
+ * best score found so far (Branch and Bound).
+ *
+ * Scoring is anytime: when the deadline of the problem (See SolveContext)
+ * passes before every answer has been refined, the cheapest stage's scores are
+ * returned for every answer, so the answer chosen is the best found so far.
+ * Tie breakers are not run once the deadline has passed.
+ *
+ * When more than one answer has the best score, the tie breaking scorers are
+ * run for the tied answers only, in the order they were added.  If the answers
+ * are still tied, the answer which comes first wins, so the same problem always
+ * gets the same answer.
+ *
+ * A pipeline can be described with a spec String such as
+ * "frames:1,row:1,-column,?relations" where every entry is the name of a
+ * scorer, an optional weight, and a leading '-' to add the stage switched off.
+ * A leading '?' adds the scorer as a tie breaker.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ScorerPipeline {
+
+	/*** Spec for the pipeline the Agent has always used */
+	public static final String DEFAULT_SPEC = "frames:1,row:1,column:1,?relations";
+
+	/*** Score given to answers which were skipped because they could not win */
+	public static final int PRUNED = Integer.MIN_VALUE;
+
+	/*** Stages of the pipeline in the order they were added */
+	private List<Stage> stages;
+
+	/*** Scorers only run to break ties, in the order they were added */
+	private List<Scorer> tieBreakers;
+
+	/***************************************************************
+	 * Default constructor for an empty pipeline
+	****************************************************************/
+	public ScorerPipeline() {
+		stages = new ArrayList<Stage>();
+		tieBreakers = new ArrayList<Scorer>();
+	}
+
+	/***************************************************************
+	 * Create the pipeline described by the given spec
+	 *
+	 * @param spec - comma separated list of [-]name[:weight] entries
+	 * @return ScorerPipeline - the configured pipeline
+	 * @throws IllegalArgumentException if a scorer or weight is unknown
+	****************************************************************/
+	public static ScorerPipeline fromSpec(String spec) {
+		ScorerPipeline toReturn = new ScorerPipeline();
+		for(String entry : spec.split(",")) {
+			entry = entry.trim();
+			if(entry.isEmpty()) {
+				continue;
+			}
+
+			//A leading '?' adds a tie breaker
+			if(entry.startsWith("?")) {
+				toReturn.addTieBreaker(createScorer(entry.substring(1).trim()));
+				continue;
+			}
+
+			//A leading '-' adds the stage switched off
+			boolean enabled = !entry.startsWith("-");
+			if(!enabled) {
+				entry = entry.substring(1);
+			}
+
+			String[] split = entry.split(":");
+			int weight = 1;
+			if(split.length > 1) {
+				try {
+					weight = Integer.parseInt(split[1].trim());
+				}catch(NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid weight for scorer: " + entry);
+				}
+			}
+			toReturn.addStage(createScorer(split[0].trim()), weight, enabled);
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Create a new instance of the scorer with the given name
+	 *
+	 * @param name - name of the scorer
+	 * @return Scorer - the new scorer
+	 * @throws IllegalArgumentException if the scorer is unknown
+	****************************************************************/
+	public static Scorer createScorer(String name) {
+		switch (name) {
+			case FrameScorer.NAME:
+				return new FrameScorer();
+			case SemanticNetworkScorer.ROW:
+				return new SemanticNetworkScorer(true);
+			case SemanticNetworkScorer.COLUMN:
+				return new SemanticNetworkScorer(false);
+			case RelationScorer.NAME:
+				return new RelationScorer();
+			default:
+				throw new IllegalArgumentException("Unknown scorer: " + name);
+		}
+	}
+
+	/***************************************************************
+	 * Add a stage to the end of the pipeline
+	 *
+	 * @param scorer - the scorer to run
+	 * @param weight - the weight of the scorer's score, must not be negative
+	 * @param enabled - if the stage should be run
+	****************************************************************/
+	public void addStage(Scorer scorer, int weight, boolean enabled) {
+		if(weight < 0) {
+			throw new IllegalArgumentException("Weight can not be negative: " + scorer.getName());
+		}
+		stages.add(new Stage(scorer, weight, enabled));
+	}
+
+	/***************************************************************
+	 * Add a scorer which is only run for the best answers when
+	 * they are tied
+	 *
+	 * @param scorer - the scorer to run
+	****************************************************************/
+	public void addTieBreaker(Scorer scorer) {
+		tieBreakers.add(scorer);
+	}
+
+	/***************************************************************
+	 * Switch the stage with the given name on or off
+	 *
+	 * @param name - name of the scorer
+	 * @param enabled - if the stage should be run
+	****************************************************************/
+	public void setEnabled(String name, boolean enabled) {
+		getStage(name).enabled = enabled;
+	}
+
+	/***************************************************************
+	 * Change the weight of the stage with the given name
+	 *
+	 * @param name - name of the scorer
+	 * @param weight - the new weight, must not be negative
+	****************************************************************/
+	public void setWeight(String name, int weight) {
+		if(weight < 0) {
+			throw new IllegalArgumentException("Weight can not be negative: " + name);
+		}
+		getStage(name).weight = weight;
+	}
+
+	/***************************************************************
+	 * Score each of the possible answers in the analysis.
+	 *
+	 * @param analysis - the problem analysis with the answers to score
+	 * @return int[] - the weighted score for each answer, in the same
+	 * 				   order as the answers in the analysis.  Answers
+	 * 				   that could not reach the best score are PRUNED,
+	 * 				   and answers not scored in full before the
+	 * 				   deadline keep the score of the cheapest stage.
+	****************************************************************/
+	public int[] score(ProblemAnalysis analysis) {
+		List<HashMap<String, HashMap<String, String>>> answers = analysis.getAnswerValues();
+		List<Stage> running = getRunningStages();
+		int[] toReturn = new int[answers.size()];
+
+		//Nothing to run, every answer is just as good as the next
+		if(running.isEmpty()) {
+			return toReturn;
+		}
+
+		//Run the cheapest stage for every answer as the estimate
+		Stage estimate = running.get(0);
+		for(int i = 0; i < answers.size(); i++) {
+			toReturn[i] = estimate.weight * estimate.scorer.score(analysis, answers.get(i));
+		}
+
+		//Score the most promising answers first so the best score rises quickly
+		SolveContext solveContext = SolveContext.current();
+		int[] estimates = toReturn.clone();
+		int bestScore = PRUNED;
+		long[] remaining = new long[running.size() + 1];
+		for(int index : rankByScore(estimates)) {
+
+			//Out of time, the answers not reached yet keep their estimates
+			if(running.size() > 1 && solveContext.isPastDeadline()) {
+				break;
+			}
+
+			HashMap<String, HashMap<String, String>> answer = answers.get(index);
+			int score = toReturn[index];
+
+			//The most the remaining stages could add to the score
+			for(int s = running.size() - 1; s > 0; s--) {
+				Stage stage = running.get(s);
+				remaining[s] = remaining[s + 1] + (long) stage.weight * stage.scorer.maxScore(analysis, answer);
+			}
+
+			boolean pruned = false;
+			for(int s = 1; s < running.size() && !pruned; s++) {
+
+				//This answer can't beat (or tie) the best answer, stop scoring it
+				if(score + remaining[s] < bestScore) {
+					pruned = true;
+				}else {
+					Stage stage = running.get(s);
+					score += stage.weight * stage.scorer.score(analysis, answer);
+				}
+			}
+
+			if(pruned) {
+				toReturn[index] = PRUNED;
+			}else {
+				toReturn[index] = score;
+				bestScore = Math.max(bestScore, score);
+			}
+		}
+
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Choose the best answer from the given scores.  The tie breakers
+	 * are only run when more than one answer has the best score, and
+	 * only for those answers.
+	 *
+	 * @param analysis - the problem analysis the answers were scored for
+	 * @param scores - the scores from score()
+	 * @return int - the index of the best answer
+	****************************************************************/
+	public int chooseBest(ProblemAnalysis analysis, int[] scores) {
+		List<Integer> tied = getBest(scores);
+
+		//Run the tie breakers one at a time until only one answer is left, or time runs out
+		SolveContext solveContext = SolveContext.current();
+		for(int t = 0; t < tieBreakers.size() && tied.size() > 1 && !solveContext.isPastDeadline(); t++) {
+			Scorer tieBreaker = tieBreakers.get(t);
+			int[] tieScores = new int[tied.size()];
+			for(int i = 0; i < tied.size(); i++) {
+				HashMap<String, HashMap<String, String>> answer = analysis.getAnswerValues().get(tied.get(i).intValue());
+				tieScores[i] = tieBreaker.score(analysis, answer);
+			}
+
+			List<Integer> stillTied = new ArrayList<Integer>();
+			for(Integer index : getBest(tieScores)) {
+				stillTied.add(tied.get(index.intValue()));
+			}
+			tied = stillTied;
+		}
+
+		//The first answer wins any tie that is left
+		return tied.isEmpty() ? 0 : tied.get(0).intValue();
+	}
+
+	/***************************************************************
+	 * Helper method to find every index with the highest score
+	 *
+	 * @param scores - the scores to search
+	 * @return List<Integer> - the indexes with the best score, in order
+	****************************************************************/
+	private List<Integer> getBest(int[] scores) {
+		List<Integer> toReturn = new ArrayList<Integer>();
+		int bestScore = PRUNED;
+		for(int i = 0; i < scores.length; i++) {
+			if(scores[i] > bestScore || toReturn.isEmpty()) {
+				bestScore = scores[i];
+				toReturn.clear();
+				toReturn.add(Integer.valueOf(i));
+			}else if(scores[i] == bestScore) {
+				toReturn.add(Integer.valueOf(i));
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return List<Stage> - the enabled stages, cheapest first
+	****************************************************************/
+	private List<Stage> getRunningStages() {
+		List<Stage> toReturn = new ArrayList<Stage>();
+		for(Stage stage : stages) {
+			if(stage.enabled) {
+				toReturn.add(stage);
+			}
+		}
+
+		//The sort is stable, so stages with the same cost keep the order they were added in
+		Collections.sort(toReturn, new Comparator<Stage>() {
+			@Override
+			public int compare(Stage first, Stage second) {
+				return Integer.compare(first.scorer.getCost(), second.scorer.getCost());
+			}
+		});
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to order the possible answers from the highest
+	 * estimated score to the lowest.  Answers with the same estimate
+	 * keep their original order.
+	 *
+	 * @param scores - the estimated score for each possible answer
+	 * @return int[] - indexes into scores, best estimate first
+	****************************************************************/
+	private int[] rankByScore(int[] scores) {
+		int[] toReturn = new int[scores.length];
+
+		//Insertion sort, there are only ever a handful of answers
+		for(int i = 0; i < scores.length; i++) {
+			int j = i;
+			while(j > 0 && scores[toReturn[j - 1]] < scores[i]) {
+				toReturn[j] = toReturn[j - 1];
+				j--;
+			}
+			toReturn[j] = i;
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Helper method to get the stage with the given scorer name
+	 * @throws IllegalArgumentException if no such stage exists
+	****************************************************************/
+	private Stage getStage(String name) {
+		for(Stage stage : stages) {
+			if(stage.scorer.getName().equals(name)) {
+				return stage;
+			}
+		}
+		throw new IllegalArgumentException("No stage for scorer: " + name);
+	}
+
+	/***************************************************************
+	 * @return String - the spec describing this pipeline
+	****************************************************************/
+	@Override
+	public String toString() {
+		StringBuilder toReturn = new StringBuilder();
+		for(Stage stage : stages) {
+			if(toReturn.length() > 0) {
+				toReturn.append(",");
+			}
+			toReturn.append(stage.enabled ? "" : "-").append(stage.scorer.getName())
+					.append(":").append(stage.weight);
+		}
+		for(Scorer tieBreaker : tieBreakers) {
+			if(toReturn.length() > 0) {
+				toReturn.append(",");
+			}
+			toReturn.append("?").append(tieBreaker.getName());
+		}
+		return toReturn.toString();
+	}
+
+	/***************************************************************
+	 * One stage of the pipeline: a scorer, its weight and if it is on
+	****************************************************************/
+	private static class Stage {
+		private Scorer scorer;
+		private int weight;
+		private boolean enabled;
+
+		private Stage(Scorer scorer, int weight, boolean enabled) {
+			this.scorer = scorer;
+			this.weight = weight;
+			this.enabled = enabled;
+		}
+	}
+}
@@ -48,6 +48,18 @@ public class SemanticNetworkAttribute {
 		this.percent = percent;
 	}
 
+	/**************************************************
+	 * Clear this attribute so it can be reused from a
+	 * pool (See SolveContext)
+	 **************************************************/
+	public void reset() {
+		this.name = null;
+		this.oldVal = null;
+		this.newVal = null;
+		this.change = false;
+		this.percent = 0;
+	}
+
 	/***************************************************
 	 * Getters and Setters for Instance Variables
 	 ***************************************************/
@@ -33,6 +33,17 @@ public class SemanticNetworkObj {
 		this.attributes = new ArrayList<SemanticNetworkAttribute>();
 	}
 	
+	/*****************************************************
+	 * Clear this object so it can be reused from a pool
+	 * (See SolveContext)
+	 *****************************************************/
+	public void reset() {
+		this.name = null;
+		this.attributes.clear();
+		this.existsNew = false;
+		this.existsOld = false;
+	}
+	
 	/*****************************************************
 	 * Return the count of how many of the attributes in
 	 * This SeamnticNetwork have changed
@@ -0,0 +1,86 @@
+package project2;
+
+import java.util.HashMap;
+import java.util.List;
+
+/*******************************************************************************
+ * Scorer for the Semantic Network approach.  The differences between the
+ * example figures are compared to the differences between the prompt figure
+ * and the possible answer.  A row scorer compares A&B to C&answer and a column
+ * scorer compares A&C to B&answer.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class SemanticNetworkScorer implements Scorer {
+
+	/*** Name used to configure the row scorer */
+	public static final String ROW = "row";
+
+	/*** Name used to configure the column scorer */
+	public static final String COLUMN = "column";
+
+	/*** Utility class used to complete the Semantic Network calculations*/
+	private SemanticNetworkUtil smUtil;
+
+	/*** If this scorer compares rows (A&B) instead of columns (A&C) */
+	private boolean row;
+
+	/***************************************************************
+	 * Constructor
+	 * @param row - true to compare rows, false to compare columns
+	****************************************************************/
+	public SemanticNetworkScorer(boolean row) {
+		smUtil = new SemanticNetworkUtil();
+		this.row = row;
+	}
+
+	@Override
+	public String getName() {
+		return row ? ROW : COLUMN;
+	}
+
+	@Override
+	public int getCost() {
+		return 4;
+	}
+
+	@Override
+	public int score(ProblemAnalysis analysis, HashMap<String, HashMap<String, String>> answerValues) {
+		if(getBaseline(analysis) == null) {
+			return 0;
+		}
+
+		//The test network is thrown away right after it is compared, so build it from scratch space
+		SolveContext scratch = SolveContext.current();
+		long mark = scratch.mark();
+		try {
+			List<SemanticNetworkObj> test = smUtil.calculateDifference(getTestFigure(analysis), answerValues, scratch);
+			return smUtil.compareDifference(getBaseline(analysis), test);
+		}finally {
+			scratch.release(mark);
+		}
+	}
+
+	@Override
+	public int maxScore(ProblemAnalysis analysis, HashMap<String, HashMap<String, String>> answerValues) {
+		if(getBaseline(analysis) == null) {
+			return 0;
+		}
+		return smUtil.maxDifferenceScore(getBaseline(analysis), getTestFigure(analysis), answerValues);
+	}
+
+	/***************************************************************
+	 * @return the example Semantic Network this scorer compares to,
+	 * 		   null for the column of a 2x1 Matrix
+	****************************************************************/
+	private List<SemanticNetworkObj> getBaseline(ProblemAnalysis analysis) {
+		return row ? analysis.getBaselineDiffAB() : analysis.getBaselineDiffAC();
+	}
+
+	/***************************************************************
+	 * @return the figure the possible answer is compared against
+	****************************************************************/
+	private HashMap<String, HashMap<String, String>> getTestFigure(ProblemAnalysis analysis) {
+		return row ? analysis.getFigureValues("C") : analysis.getFigureValues("B");
+	}
+}
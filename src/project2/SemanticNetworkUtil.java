@@ -16,6 +16,8 @@ import java.util.List;
  ***************************************************************************/
 public class SemanticNetworkUtil {
 
+	/*** Fill attribute used for objects which do not have one, it is never changed */
+	private static final SemanticNetworkAttribute NO_FILL = new SemanticNetworkAttribute("fill", "no", "no", false, 0);
 
     /**********************************************************************************************
      * Helper method to convert a Map which represents a RavenFigure object to a SemanticNetwork
@@ -73,44 +75,139 @@ public class SemanticNetworkUtil {
 
 		
     	int toReturn = 0;
-    	List<String> alreadyTested = new ArrayList<String>();
-    	//Start off with the simple test if the amount of changes is the same
-    	if(baseline.size() == test.size())  {
+    	SolveContext scratch = SolveContext.current();
+    	long mark = scratch.mark();
+    	try {
+	    	List<String> alreadyTested = scratch.obtainList();
+	    	//Start off with the simple test if the amount of changes is the same
+	    	if(baseline.size() == test.size())  {
     		
-    		//Next start comparing each of the objects and seeing if the differences
-    		//between the starting figure and the resulting figure are similar for both sets 
-    		//of figures
-    		for(int i = 0; i < baseline.size(); i++) {
-    			SemanticNetworkObj baseObj = baseline.get(i);
-    			SemanticNetworkObj testObj = getObjectByName(baseObj.getName(), test);
-    			alreadyTested.add(baseObj.getName());
-    			if(testObj != null) {
-    				toReturn += scoreDifference(baseObj, testObj);
-    			}else {
-    				//The object doesn't exist in the test figure
-    				toReturn -= 1;
-    			}
-    		}
-    		
-    		for(int i = 0; i < test.size(); i++) {
-    			SemanticNetworkObj testObj = test.get(i);
-    			if(!alreadyTested.contains(testObj.getName())) {
-    				alreadyTested.add(testObj.getName());
-	    			SemanticNetworkObj baseObj = getObjectByName(testObj.getName(), baseline);
-	    			if(baseObj != null) {
+	    		//Next start comparing each of the objects and seeing if the differences
+	    		//between the starting figure and the resulting figure are similar for both sets 
+	    		//of figures
+	    		for(int i = 0; i < baseline.size(); i++) {
+	    			SemanticNetworkObj baseObj = baseline.get(i);
+	    			SemanticNetworkObj testObj = getObjectByName(baseObj.getName(), test);
+	    			alreadyTested.add(baseObj.getName());
+	    			if(testObj != null) {
 	    				toReturn += scoreDifference(baseObj, testObj);
 	    			}else {
-	    				//The object doesn't exist in the baseline figure
+	    				//The object doesn't exist in the test figure
 	    				toReturn -= 1;
 	    			}
+	    		}
+    		
+	    		for(int i = 0; i < test.size(); i++) {
+	    			SemanticNetworkObj testObj = test.get(i);
+	    			if(!alreadyTested.contains(testObj.getName())) {
+	    				alreadyTested.add(testObj.getName());
+		    			SemanticNetworkObj baseObj = getObjectByName(testObj.getName(), baseline);
+		    			if(baseObj != null) {
+		    				toReturn += scoreDifference(baseObj, testObj);
+		    			}else {
+		    				//The object doesn't exist in the baseline figure
+		    				toReturn -= 1;
+		    			}
+	    			}
+	    		}
+	    	}else {
+	    		toReturn = -1;
+	    	}
+    	}finally {
+    		scratch.release(mark);
+    	}
+    	return toReturn;
+    }
+
+    /****************************************************************
+     * Calculate the highest score compareDifference could possibly
+     * award the baseline Semantic Network when it is compared to the
+     * Semantic Network between the two given figures.  The test network
+     * does not need to be calculated to get this bound, which lets the
+     * agent skip candidates that can no longer beat the best answer.
+     *
+     * @param baseline - The Semantic Network between the objects in
+     * 					 Figure A and Figure B
+     * @param figureValues - Values of the first figure in the test set
+     * @param answerValues - Values of the possible answer "i"
+     * @return - integer: A score compareDifference will never exceed for
+     * 					  the networks
+     ******************************************************************/
+    public int maxDifferenceScore(List<SemanticNetworkObj> baseline,
+    		HashMap<String, HashMap<String, String>> figureValues,
+    		HashMap<String, HashMap<String, String>> answerValues) {
+
+    	//calculateDifference creates one object for every object in the first figure
+    	//and one more for every object only found in the answer
+    	int testSize = figureValues.size();
+    	for(String objectName : answerValues.keySet()) {
+    		if(!figureValues.containsKey(objectName)) {
+    			testSize++;
+    		}
+    	}
+
+    	//A different amount of changes is always scored the same
+    	if(testSize != baseline.size()) {
+    		return -1;
+    	}
+
+    	//Find the most attributes and the longest value list the test network could have
+    	int maxTestAttrs = 0;
+    	int maxValues = 1;
+    	for(HashMap<String, HashMap<String, String>> values : Arrays.asList(figureValues, answerValues)) {
+    		for(HashMap<String, String> attrs : values.values()) {
+    			if(attrs != null) {
+    				maxTestAttrs = Math.max(maxTestAttrs, attrs.size());
+    				for(String value : attrs.values()) {
+    					maxValues = Math.max(maxValues, countValues(value));
+    				}
     			}
     		}
-    	}else {
-    		toReturn = -1;
     	}
-    	
+
+    	int toReturn = 0;
+    	for(SemanticNetworkObj baseObj : baseline) {
+    		for(SemanticNetworkAttribute attr : baseObj.getList()) {
+    			maxValues = Math.max(maxValues, countValues(attr.getNewVal()));
+    			maxValues = Math.max(maxValues, countValues(attr.getOldVal()));
+    		}
+    	}
+    	for(SemanticNetworkObj baseObj : baseline) {
+
+    		//Existence (2), attribute count (1) and fill (12) points
+    		int objScore = 15;
+
+    		//Each attribute is only scored once, for a change match and matching values.
+    		//A test object holds the attributes of the object in both test figures
+    		int attrCount = baseObj.getList().size() + 2 * maxTestAttrs;
+    		objScore += attrCount * (5 + 10 * maxValues);
+
+    		toReturn += objScore;
+    	}
+
     	return toReturn;
     }
+
+    /**********************************************************
+     * Helper method to count how many values a multiple value
+     * attribute holds (ie. above:Y,Z holds two)
+     *
+     * @param value - the attribute value, can be null
+     * @return int - the number of comma separated values
+     **********************************************************/
+    private int countValues(String value) {
+    	int toReturn = 0;
+    	if(value != null) {
+    		toReturn = 1;
+    		for(int i = 0; i < value.length(); i++) {
+    			if(value.charAt(i) == ',') {
+    				toReturn++;
+    			}
+    		}
+    	}
+    	return toReturn;
+    }
+
     /**********************************************************
      * Compare the Semantic Networks of the two Figure Sets
      * and determine how similar the differences between them
@@ -134,24 +231,29 @@ public class SemanticNetworkUtil {
 		
 		//Now the fun part....Start comparing the changes between each different attribute
 		//Start by keeping track of the attributes tested so far
-		List<String> testedAttr = new ArrayList<String>();
+		SolveContext scratch = SolveContext.current();
+		long mark = scratch.mark();
+		try {
+			List<String> testedAttr = scratch.obtainList();
 		
-		//Next see if there are the same amount attribute changes for each set
-		if(baseAttrs.size() == testAttrs.size()) {
-			toReturn += 1;
-		}else {
-			toReturn -= 1;
-		}
+			//Next see if there are the same amount attribute changes for each set
+			if(baseAttrs.size() == testAttrs.size()) {
+				toReturn += 1;
+			}else {
+				toReturn -= 1;
+			}
 		
-		//Step through each of the attributes in the figures A&B.
-		toReturn += scoreObjAttributes(baseAttrs, testAttrs, testedAttr);
+			//Step through each of the attributes in the figures A&B.
+			toReturn += scoreObjAttributes(baseAttrs, testAttrs, testedAttr);
 		
-		//Step through each of the attributes in the figures C&i.
-		toReturn += scoreObjAttributes(testAttrs, baseAttrs, testedAttr);
+			//Step through each of the attributes in the figures C&i.
+			toReturn += scoreObjAttributes(testAttrs, baseAttrs, testedAttr);
 			
-		// Test object fill similarities
-		toReturn += scoreObjectFill(testAttrs, baseAttrs);
-		
+			// Test object fill similarities
+			toReturn += scoreObjectFill(testAttrs, baseAttrs);
+		}finally {
+			scratch.release(mark);
+		}
     	return toReturn;
     }
     
@@ -223,8 +325,8 @@ public class SemanticNetworkUtil {
     	SemanticNetworkAttribute testFill = getAttrByName(testAttrs, "fill");
     	
     	//If the object doesn't have fill, the result will be null so we need a "fake" attribute
-    	testFill = testFill == null ? new SemanticNetworkAttribute("fill", "no", "no", false, 0) : testFill;
-    	baseFill = baseFill == null ?  new SemanticNetworkAttribute("fill", "no", "no", false, 0) : baseFill;
+    	testFill = testFill == null ? NO_FILL : testFill;
+    	baseFill = baseFill == null ? NO_FILL : baseFill;
     	
     	//If the attribute has multiple values, split and count
 		String[] baseNewSplit = baseFill.getNewVal().split(",");
@@ -295,9 +397,28 @@ public class SemanticNetworkUtil {
      *****************************************************************************/
     public List<SemanticNetworkObj> calculateDifference(HashMap<String, HashMap<String, String>> figureAValues,
     		HashMap<String, HashMap<String, String>> figureBValues) {
+    	return calculateDifference(figureAValues, figureBValues, null);
+    }
+
+    /****************************************************************************
+     * Given two RavenFigure objects determine the differences that exist between
+     * the objects in each figure (See calculateDifference).  When a context is
+     * given the Semantic Network is built from its pools, so it must not be kept
+     * after the context is released.
+     * 
+     * @param figureA - First Raven's Figure object to compare
+     * @param figureB - Second Raven's Figure object to compare
+     * @param scratch - context to build the network from, null to create a new one
+     * 
+     * @return - List<SemanticNetwork>: List of the differences each object has
+     * 									 between FigureA & FigureB
+     *****************************************************************************/
+    public List<SemanticNetworkObj> calculateDifference(HashMap<String, HashMap<String, String>> figureAValues,
+    		HashMap<String, HashMap<String, String>> figureBValues, SolveContext scratch) {
     	
     	//List of differences to return
-    	List<SemanticNetworkObj> toReturn = new ArrayList<SemanticNetworkObj>();
+    	List<SemanticNetworkObj> toReturn = scratch != null ? scratch.<SemanticNetworkObj>obtainList()
+    			: new ArrayList<SemanticNetworkObj>();
     	    	
     	//Step through each object in the first figure and compare it's attributes to
     	//those in the second figure
@@ -311,7 +432,7 @@ public class SemanticNetworkUtil {
     		if(secondFigObjs != null) {
     			
     			//Create a Result object to hold the difference between the two objects
-	    		SemanticNetworkObj resultObj = new SemanticNetworkObj();
+	    		SemanticNetworkObj resultObj = newObj(scratch);
 	    		
 	    		//Set what we know so far, that it exists in both and it's name
 	    		resultObj.setExistsNew(true);
@@ -324,7 +445,7 @@ public class SemanticNetworkUtil {
 		    		for(String attrName : firstFigObjs.keySet()) {
 		    			
 		    			//Create a Result Attribute object to hold the differences found
-		    			SemanticNetworkAttribute rra = new SemanticNetworkAttribute();
+		    			SemanticNetworkAttribute rra = newAttr(scratch);
 		    			
 		    			//Set the name of the attribute
 		    			rra.setName(attrName);
@@ -374,7 +495,7 @@ public class SemanticNetworkUtil {
 	    			if(resultObj.checkAttrExists(oldAttrName) == null) {
 	    				
 	    				//Create a "dummy"entry to keep track of this new attribute
-	    				SemanticNetworkAttribute oldrra = new SemanticNetworkAttribute();
+	    				SemanticNetworkAttribute oldrra = newAttr(scratch);
 	    				oldrra.setName(oldAttrName);
 	    				oldrra.setOldVal("DNE");
 	    				oldrra.setNewVal(secondFigObjs.get(oldAttrName));
@@ -390,7 +511,7 @@ public class SemanticNetworkUtil {
 	    	//to represent an object which is in the first figure, but
 	    	//does not exist in the second
 	    	}else {
-	    		SemanticNetworkObj obj = new SemanticNetworkObj();
+	    		SemanticNetworkObj obj = newObj(scratch);
 	    			obj.setName(objectName);
 	    			obj.setExistsNew(false);
 	    			obj.setExistsOld(true);
@@ -409,7 +530,7 @@ public class SemanticNetworkUtil {
     		if(figureAObjVals == null) {
     			
     			//Create the dummy object and it to the list
-	    		SemanticNetworkObj resultObj = new SemanticNetworkObj();
+	    		SemanticNetworkObj resultObj = newObj(scratch);
 	    		resultObj.setExistsNew(true);
 	    		resultObj.setExistsOld(false);
 	    		resultObj.setName(objectNameOld);
@@ -527,6 +648,17 @@ public class SemanticNetworkUtil {
     	}
     	return toReturn;
     }
+    /*************************************************************************
+     * Helper methods to create a Semantic Network object or attribute, from
+     * the context's pool when one is given.
+     *************************************************************************/
+    private SemanticNetworkObj newObj(SolveContext scratch) {
+    	return scratch != null ? scratch.obtainObj() : new SemanticNetworkObj();
+    }
+    private SemanticNetworkAttribute newAttr(SolveContext scratch) {
+    	return scratch != null ? scratch.obtainAttr() : new SemanticNetworkAttribute();
+    }
+
     /*************************************************************************
      * Based on the string values given, determine how much of the object
      * is filled in.
@@ -0,0 +1,243 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*******************************************************************************
+ * The ShardedRun splits a Project2 run across several processes, so a large
+ * corpus can use a whole machine without one JVM's heap and garbage collector
+ * becoming the limit.  Each problem belongs to one of n shards by a stable hash
+ * of its path in the problems folder (See getShard), so every process agrees
+ * on the split without talking to the others.
+ *
+ * Shard k writes its finished problems to Results.shard-k-of-n.journal (See
+ * CheckpointJournal), which is also how it resumes if it dies.  Once every
+ * shard has finished, merge() lays the problems out exactly as Project2 does
+ * and rebuilds the standard Results.txt from the shard journals, along with
+ * the accuracy and timing of the whole run.  After a merge which found every
+ * problem, the journals and partial results of the shards are deleted (See
+ * delete), so the next run starts from the beginning rather than restoring the
+ * old answers.  The logs are kept.
+ *
+ *   java project2.Project2 --shard k/n    - solve shard k of n, 1 <= k <= n
+ *   java project2.Project2 --merge n      - merge the results of n shards
+ *   java project2.Project2 --shards n     - run n shards as local processes
+ *                                           and merge them
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class ShardedRun {
+
+	/*** Start of the names of the files each shard writes */
+	public static final String SHARD_PREFIX = "Results.shard-";
+
+	/*******************************************************************************
+	 * Read a shard spec
+	 *
+	 * @param spec - the shard as "k/n", such as "2/4"
+	 * @return int[] - the shard, from 1, and the number of shards
+	 * @throws IllegalArgumentException if the spec is not a shard
+	 *******************************************************************************/
+	public static int[] parseShard(String spec) {
+		String[] split = spec.split("/");
+		try {
+			int[] toReturn = { Integer.parseInt(split[0].trim()), Integer.parseInt(split[1].trim()) };
+			if(split.length == 2 && toReturn[1] > 0 && toReturn[0] > 0 && toReturn[0] <= toReturn[1]) {
+				return toReturn;
+			}
+		}catch(NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			//Fall through to the error below
+		}
+		throw new IllegalArgumentException("Invalid shard, expected k/n with 1 <= k <= n: " + spec);
+	}
+
+	/*******************************************************************************
+	 * The shard a problem file belongs to, from the CRC32 of its path in the
+	 * problems folder, so it is the same on every machine and every run
+	 *
+	 * @param setFolder - name of the problem set's folder
+	 * @param fileName - name of the problem file
+	 * @param shards - the number of shards
+	 * @return int - the shard, from 1
+	 *******************************************************************************/
+	public static int getShard(String setFolder, String fileName, int shards) {
+		CRC32 crc = new CRC32();
+		crc.update((setFolder + "/" + fileName).getBytes(StandardCharsets.UTF_8));
+		return (int) (crc.getValue() % shards) + 1;
+	}
+
+	/*******************************************************************************
+	 * @return String - the start of the names of the files shard k writes
+	 *******************************************************************************/
+	public static String getName(int shard, int shards) {
+		return SHARD_PREFIX + shard + "-of-" + shards;
+	}
+
+	/*******************************************************************************
+	 * Load the problem sets the same way Project2 always has, keeping only the
+	 * problems in one shard.  Every set is kept, even if none of its problems
+	 * are in the shard.
+	 *
+	 * @param folder - the problems folder
+	 * @param shard - the shard to keep, 0 to keep every problem
+	 * @param shards - the number of shards
+	 * @return List<ProblemSet> - the problem sets
+	 *******************************************************************************/
+	public static List<ProblemSet> loadSets(File folder, int shard, int shards) {
+		List<ProblemSet> toReturn = new ArrayList<ProblemSet>();
+		File[] setFolders = folder.listFiles();
+		if(setFolders == null) {
+			return toReturn;
+		}
+		for(File setFolder : setFolders) {
+			ProblemSet newSet = new ProblemSet(setFolder.getName());
+			toReturn.add(newSet);
+			File[] problems = setFolder.listFiles();
+			if(problems == null) {
+				continue;
+			}
+			for(File problem : problems) {
+				if(shard == 0 || getShard(setFolder.getName(), problem.getName(), shards) == shard) {
+					newSet.addProblem(problem);
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Run every shard as a process of its own on this machine and wait for them
+	 * all.  Each process gets the same Java, class path and agent.* system
+	 * properties as this one, and its output goes to Results.shard-k-of-n.log.
+	 *
+	 * @param shards - the number of shards
+	 * @param extraArgs - more arguments for each shard, such as --fresh
+	 * @return int - the number of shards which failed
+	 * @throws IOException if a process can not be started
+	 * @throws InterruptedException if interrupted while waiting
+	 *******************************************************************************/
+	public static int launch(int shards, List<String> extraArgs) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		List<Process> processes = new ArrayList<Process>();
+		long start = System.nanoTime();
+		for(int k = 1; k <= shards; k++) {
+			List<String> command = new ArrayList<String>();
+			command.add(java);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			for(String name : System.getProperties().stringPropertyNames()) {
+				if(name.startsWith("agent.")) {
+					command.add("-D" + name + "=" + System.getProperty(name));
+				}
+			}
+			command.add(Project2.class.getName());
+			command.add("--shard");
+			command.add(k + "/" + shards);
+			command.addAll(extraArgs);
+
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(new File(getName(k, shards) + ".log"));
+			processes.add(builder.start());
+		}
+
+		int toReturn = 0;
+		for(int k = 1; k <= shards; k++) {
+			int exit = processes.get(k - 1).waitFor();
+			if(exit != 0) {
+				toReturn++;
+			}
+			System.out.println(String.format("shard %d/%d exited with %d after %.2f s", k, shards, exit,
+					(System.nanoTime() - start) / 1e9));
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Merge the journals of every shard into the standard results file, and
+	 * report the accuracy and timing of the whole run
+	 *
+	 * @param folder - the problems folder
+	 * @param shards - the number of shards
+	 * @param results - the results file to write
+	 * @return boolean - true if every problem was solved by a shard
+	 * @throws IOException if a journal can not be read or the results written
+	 *******************************************************************************/
+	public static boolean merge(File folder, int shards, File results) throws IOException {
+		Map<String, CheckpointJournal.Entry> entries = new HashMap<String, CheckpointJournal.Entry>();
+		for(int k = 1; k <= shards; k++) {
+			File journal = new File(getName(k, shards) + ".journal");
+			if(!journal.exists()) {
+				System.out.println("No results for shard " + k + "/" + shards + ": " + journal);
+			}
+			entries.putAll(CheckpointJournal.load(journal));
+		}
+
+		int problems = 0;
+		int missing = 0;
+		int correct = 0;
+		int deadlineHits = 0;
+		long totalNanos = 0;
+		long maxNanos = 0;
+		try (ResultsWriter writer = new ResultsWriter(results, null, null, ResultsWriter.DEFAULT_QUEUE_SIZE)) {
+			for(ProblemSet set : loadSets(folder, 0, shards)) {
+				writer.beginSet(set.getName());
+				for(RavensProblem problem : set.getProblems()) {
+					problems++;
+					long ticket = writer.reserve();
+					CheckpointJournal.Entry entry = entries.get(CheckpointJournal.getKey(set.getName(), problem.getName()));
+					if(entry == null) {
+						missing++;
+						writer.fail(ticket, set.getName(), problem, new IllegalStateException("Not solved by any shard"));
+						continue;
+					}
+					problem.setAnswerReceived(entry.getGivenAnswer());
+					writer.restore(ticket, set.getName(), problem, entry);
+					if(problem.getCorrect().equals("Correct")) {
+						correct++;
+					}
+					if(entry.isDeadlineHit()) {
+						deadlineHits++;
+					}
+					totalNanos += entry.getNanos();
+					maxNanos = Math.max(maxNanos, entry.getNanos());
+				}
+				writer.endSet();
+			}
+		}
+
+		int solved = problems - missing;
+		System.out.println(String.format("shards=%d problems=%d solved=%d missing=%d correct=%d accuracy=%.3f "
+				+ "deadlineHits=%d solveSeconds=%.3f meanMs=%.3f maxMs=%.3f", shards, problems, solved, missing, correct,
+				problems == 0 ? 0.0 : (double) correct / problems, deadlineHits, totalNanos / 1e9,
+				solved == 0 ? 0.0 : totalNanos / 1e6 / solved, maxNanos / 1e6));
+		return missing == 0;
+	}
+
+	/*******************************************************************************
+	 * Delete the journal and partial results of every shard, once they have
+	 * been merged
+	 *
+	 * @param shards - the number of shards
+	 * @return boolean - true if every file which existed was deleted
+	 *******************************************************************************/
+	public static boolean delete(int shards) {
+		boolean toReturn = true;
+		for(int k = 1; k <= shards; k++) {
+			for(String extension : new String[] { ".journal", ".txt" }) {
+				File file = new File(getName(k, shards) + extension);
+				if(file.exists() && !file.delete()) {
+					System.out.println("Unable to delete " + file);
+					toReturn = false;
+				}
+			}
+		}
+		return toReturn;
+	}
+}
@@ -0,0 +1,155 @@
+package project2;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/*******************************************************************************
+ * A simple client for the SolveServer, used to try the server out from the
+ * command line.  It sends every problem file given (or every file in the
+ * Problems folder) over one connection and prints each reply along with the
+ * number answered correctly and the time taken.  Problems turned away with
+ * BUSY are sent again after a short wait.
+ *
+ *   java project2.SolveClient [port] [problem files...]
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class SolveClient {
+
+	/*** Milliseconds to wait before sending a problem the server was too busy for */
+	private static final long BUSY_WAIT = 10;
+
+	/*** Connection to the server */
+	private Socket socket;
+	private BufferedReader reader;
+	private PrintWriter writer;
+
+	/***************************************************************
+	 * Constructor which connects to the server on the loopback address
+	 * @param port - the port the server listens on
+	 * @throws IOException if the server can not be reached
+	****************************************************************/
+	public SolveClient(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+	}
+
+	/***************************************************************
+	 * Send a problem and wait for the reply, sending it again while
+	 * the server is busy
+	 *
+	 * @param lines - the lines of the problem file
+	 * @return String - the reply from the server
+	 * @throws IOException if the connection fails
+	****************************************************************/
+	public String solve(List<String> lines) throws IOException {
+		while(true) {
+			for(String line : lines) {
+				writer.println(line);
+			}
+			writer.println(ProblemParser.END);
+			writer.flush();
+			String toReturn = reader.readLine();
+			if(toReturn == null) {
+				throw new IOException("Server closed the connection");
+			}
+			if(!toReturn.equals("BUSY")) {
+				return toReturn;
+			}
+			try {
+				Thread.sleep(BUSY_WAIT);
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return toReturn;
+			}
+		}
+	}
+
+	/***************************************************************
+	 * Send a one line command such as PING or STATS
+	 *
+	 * @param command - the command
+	 * @return String - the reply from the server
+	 * @throws IOException if the connection fails
+	****************************************************************/
+	public String send(String command) throws IOException {
+		writer.println(command);
+		writer.flush();
+		return reader.readLine();
+	}
+
+	/***************************************************************
+	 * Close the connection
+	****************************************************************/
+	public void close() throws IOException {
+		writer.println("QUIT");
+		writer.flush();
+		socket.close();
+	}
+
+	/***************************************************************
+	 * Find every problem file in the sets of a problems folder
+	 *
+	 * @param folder - the problems folder
+	 * @return List<File> - the problem files, empty if there are none
+	****************************************************************/
+	static List<File> findProblemFiles(File folder) {
+		List<File> toReturn = new ArrayList<File>();
+		File[] sets = folder.listFiles();
+		if(sets != null) {
+			for(File set : sets) {
+				File[] problems = set.listFiles();
+				if(problems != null) {
+					for(File problem : problems) {
+						toReturn.add(problem);
+					}
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Send the problem files to the server and report the replies
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : SolveServer.DEFAULT_PORT;
+		List<File> files = new ArrayList<File>();
+		for(int i = 1; i < args.length; i++) {
+			files.add(new File(args[i]));
+		}
+		if(files.isEmpty()) {
+			files = findProblemFiles(new File(ProblemLoader.PROBLEMS_FOLDER));
+		}
+
+		SolveClient client = new SolveClient(port);
+		int correct = 0;
+		long start = System.nanoTime();
+		for(File file : files) {
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			String reply = client.solve(lines);
+			String[] split = reply.split(" ");
+			if(lines.size() > 2 && split.length > 1 && split[0].equals("ANSWER") && split[1].equals(lines.get(2).trim())) {
+				correct++;
+			}
+			System.out.println(lines.get(0) + ": " + reply);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(client.send("STATS"));
+		client.close();
+		System.out.println(String.format("%d problems, %d correct, %.1f problems/s", files.size(), correct,
+				files.size() / seconds));
+	}
+}
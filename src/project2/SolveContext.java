@@ -0,0 +1,169 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*******************************************************************************
+ * The SolveContext holds scratch space which is reused from one problem to the
+ * next instead of being created and thrown away for every possible answer.
+ * Each thread has its own context (See current()), so it never needs to be
+ * locked.
+ *
+ * Objects are handed out like an arena: mark() remembers how much is in use,
+ * the obtain methods hand out the next free object, and release(mark) gives
+ * back everything handed out since the mark.  Anything obtained from the
+ * context must not be kept after it is released.
+ *
+ * The context also holds the deadline of the problem being solved on the
+ * thread (See startDeadline), so long running steps can check it without it
+ * being passed through every call.  A step which cuts its work short because
+ * the deadline has passed marks the problem as a deadline hit.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class SolveContext {
+
+	/*** The context for each thread */
+	private static final ThreadLocal<SolveContext> CONTEXTS = new ThreadLocal<SolveContext>() {
+		@Override
+		protected SolveContext initialValue() {
+			return new SolveContext();
+		}
+	};
+
+	/*** Pooled Semantic Network objects and the number in use */
+	private List<SemanticNetworkObj> objs;
+	private int objsUsed;
+
+	/*** Pooled Semantic Network attributes and the number in use */
+	private List<SemanticNetworkAttribute> attrs;
+	private int attrsUsed;
+
+	/*** Pooled lists and the number in use */
+	private List<ArrayList<Object>> lists;
+	private int listsUsed;
+
+	/*** Deadline of the problem being solved in System.nanoTime, only used while hasDeadline */
+	private long deadline;
+	private boolean hasDeadline;
+
+	/*** Set once a step has cut its work short because of the deadline */
+	private boolean deadlineHit;
+
+	/***************************************************************
+	 * Default constructor for an empty context
+	****************************************************************/
+	public SolveContext() {
+		objs = new ArrayList<SemanticNetworkObj>();
+		attrs = new ArrayList<SemanticNetworkAttribute>();
+		lists = new ArrayList<ArrayList<Object>>();
+	}
+
+	/***************************************************************
+	 * @return SolveContext - the context for the current thread
+	****************************************************************/
+	public static SolveContext current() {
+		return CONTEXTS.get();
+	}
+
+	/***************************************************************
+	 * Remember how many pooled objects are in use
+	 * @return long - the mark to pass to release()
+	****************************************************************/
+	public long mark() {
+		return ((long) objsUsed << 42) | ((long) attrsUsed << 21) | listsUsed;
+	}
+
+	/***************************************************************
+	 * Give back every pooled object handed out since the mark
+	 * @param mark - the value returned by mark()
+	****************************************************************/
+	public void release(long mark) {
+		objsUsed = (int) (mark >>> 42);
+		attrsUsed = (int) ((mark >>> 21) & 0x1FFFFF);
+		listsUsed = (int) (mark & 0x1FFFFF);
+	}
+
+	/***************************************************************
+	 * @return SemanticNetworkObj - an empty object from the pool
+	****************************************************************/
+	public SemanticNetworkObj obtainObj() {
+		if(objsUsed == objs.size()) {
+			objs.add(new SemanticNetworkObj());
+		}
+		SemanticNetworkObj toReturn = objs.get(objsUsed++);
+		toReturn.reset();
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return SemanticNetworkAttribute - an empty attribute from the pool
+	****************************************************************/
+	public SemanticNetworkAttribute obtainAttr() {
+		if(attrsUsed == attrs.size()) {
+			attrs.add(new SemanticNetworkAttribute());
+		}
+		SemanticNetworkAttribute toReturn = attrs.get(attrsUsed++);
+		toReturn.reset();
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return List - an empty list from the pool
+	****************************************************************/
+	@SuppressWarnings("unchecked")
+	public <T> List<T> obtainList() {
+		if(listsUsed == lists.size()) {
+			lists.add(new ArrayList<Object>());
+		}
+		ArrayList<Object> toReturn = lists.get(listsUsed++);
+		toReturn.clear();
+		return (List<T>) toReturn;
+	}
+
+	/***************************************************************
+	 * Start the deadline for the problem about to be solved
+	 *
+	 * @param budgetNanos - the time allowed in nanoseconds, 0 or less
+	 * 						for no deadline
+	****************************************************************/
+	public void startDeadline(long budgetNanos) {
+		hasDeadline = budgetNanos > 0;
+		deadline = System.nanoTime() + budgetNanos;
+		deadlineHit = false;
+	}
+
+	/***************************************************************
+	 * Check the deadline.  Callers which get true must cut their work
+	 * short, so the problem is marked as a deadline hit.
+	 *
+	 * @return boolean - true if there is a deadline and it has passed
+	****************************************************************/
+	public boolean isPastDeadline() {
+		if(hasDeadline && System.nanoTime() - deadline > 0) {
+			deadlineHit = true;
+			return true;
+		}
+		return false;
+	}
+
+	/***************************************************************
+	 * End the deadline for the problem which was being solved
+	 *
+	 * @return boolean - true if any step cut its work short
+	****************************************************************/
+	public boolean endDeadline() {
+		boolean toReturn = deadlineHit;
+		hasDeadline = false;
+		deadlineHit = false;
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * @return boolean - true if a step has cut its work short for
+	 * 					 the problem being solved
+	****************************************************************/
+	public boolean isDeadlineHit() {
+		return deadlineHit;
+	}
+}
@@ -0,0 +1,204 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*******************************************************************************
+ * Compare the two ways the SolveServer handles connections under load: a fixed
+ * pool of connection threads with blocking I/O, and one selector thread with
+ * non-blocking I/O.  For each, a server is started in this JVM and warmed up,
+ * then many clients connect at once and each sends the problems in the
+ * Problems folder, one after the other, waiting for each reply.  The
+ * throughput and the latency of the replies (including any time spent waiting
+ * for a connection thread or backing off after BUSY) are reported.
+ *
+ *   java project2.SolveLoadTest [clients] [problems per client] [workers] [queue size]
+ *
+ * Each client runs on its own thread with a small stack, so several thousand
+ * clients can be run.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class SolveLoadTest {
+
+	/*** Stack size of each client thread */
+	private static final long CLIENT_STACK_SIZE = 256 * 1024;
+
+	/*** The ways connections can be handled */
+	private static final String[] MODES = { "threads", "selector" };
+
+	/*******************************************************************************
+	 * Run the load against a server in each mode and report the results
+	 *******************************************************************************/
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int workerCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int queueSize = args.length > 3 ? Integer.parseInt(args[3]) : clients;
+
+		List<List<String>> problems = new ArrayList<List<String>>();
+		for(File file : SolveClient.findProblemFiles(new File(ProblemLoader.PROBLEMS_FOLDER))) {
+			problems.add(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+		}
+		if(problems.isEmpty()) {
+			throw new IllegalArgumentException("No problems in " + ProblemLoader.PROBLEMS_FOLDER);
+		}
+
+		System.out.println("mode\tclients\trequests\tseconds\trequests/s\tp50 ms\tp99 ms\tmax ms\tfailed\tbusy\terror");
+		for(String mode : MODES) {
+			final SolveServer server = new SolveServer(SolveServer.createAgent(), workerCount, queueSize);
+			server.warmUp(new File(ProblemLoader.PROBLEMS_FOLDER));
+			final int port = server.bind(0);
+			final boolean selectorMode = mode.equals("selector");
+			final AtomicReference<IOException> serverError = new AtomicReference<IOException>();
+			Thread serverThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						if(selectorMode) {
+							server.serveSelector(port);
+						}else {
+							server.serve(port);
+						}
+					}catch(IOException e) {
+						serverError.set(e);
+					}
+				}
+			}, "server-" + mode);
+			serverThread.start();
+
+			Result result = run(port, clients, requests, problems);
+			String stats = server.getStats();
+			server.stop();
+			serverThread.join();
+			result.serverError = serverError.get();
+
+			System.out.println(String.format("%s\t%d\t%d\t%.2f\t%.1f\t%.2f\t%.2f\t%.2f\t%d\t%s\t%s", mode, clients,
+					result.latencies.length, result.seconds, result.latencies.length / result.seconds,
+					percentile(result.latencies, 0.50) / 1e6, percentile(result.latencies, 0.99) / 1e6,
+					percentile(result.latencies, 1.0) / 1e6, result.failed, getStat(stats, "busy"),
+					result.serverError == null ? "-" : result.serverError.toString()));
+		}
+	}
+
+	/***************************************************************
+	 * Connect every client, then start them all at once and wait for
+	 * them to finish
+	 *
+	 * @param port - the port of the server
+	 * @param clients - the number of clients
+	 * @param requests - the number of problems each client sends
+	 * @param problems - the lines of each problem file
+	 * @return Result - the latency of every reply and the time taken
+	****************************************************************/
+	private static Result run(final int port, int clients, final int requests, final List<List<String>> problems)
+			throws InterruptedException {
+		final long[] latencies = new long[clients * requests];
+		final AtomicInteger recorded = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+		final CountDownLatch connected = new CountDownLatch(clients);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(clients);
+
+		for(int c = 0; c < clients; c++) {
+			final int first = c;
+			Thread thread = new Thread(null, new Runnable() {
+				@Override
+				public void run() {
+					SolveClient client = null;
+					try {
+						client = new SolveClient(port);
+						connected.countDown();
+						start.await();
+						for(int i = 0; i < requests; i++) {
+							List<String> lines = problems.get((first + i) % problems.size());
+							long begin = System.nanoTime();
+							String reply = client.solve(lines);
+							long latency = System.nanoTime() - begin;
+							if(reply.startsWith("ANSWER")) {
+								latencies[recorded.getAndIncrement()] = latency;
+							}else {
+								failed.incrementAndGet();
+							}
+						}
+					}catch(IOException | InterruptedException e) {
+						failed.incrementAndGet();
+					}finally {
+						if(client != null) {
+							try {
+								client.close();
+							}catch(IOException e) {
+								//The server went away, nothing left to close
+							}
+						}else {
+							connected.countDown();
+						}
+						done.countDown();
+					}
+				}
+			}, "client-" + c, CLIENT_STACK_SIZE);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		connected.await();
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		double seconds = (System.nanoTime() - begin) / 1e9;
+		return new Result(Arrays.copyOf(latencies, recorded.get()), seconds, failed.get());
+	}
+
+	/***************************************************************
+	 * Helper method to find a percentile of the latencies
+	 *
+	 * @param latencies - the latencies, sorted by this method
+	 * @param fraction - the percentile as a fraction, 1 for the most
+	 * @return long - the latency, 0 if there are none
+	****************************************************************/
+	private static long percentile(long[] latencies, double fraction) {
+		if(latencies.length == 0) {
+			return 0;
+		}
+		Arrays.sort(latencies);
+		int index = (int) Math.ceil(fraction * latencies.length) - 1;
+		return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+	}
+
+	/***************************************************************
+	 * Helper method to read one counter from the server's STATS line
+	****************************************************************/
+	private static String getStat(String stats, String name) {
+		for(String part : stats.split(" ")) {
+			if(part.startsWith(name + "=")) {
+				return part.substring(name.length() + 1);
+			}
+		}
+		return "";
+	}
+
+	/*******************************************************************************
+	 * The latency of every successful reply, the time taken and the failures,
+	 * including the server failing, null if it didn't
+	 *******************************************************************************/
+	private static class Result {
+		private long[] latencies;
+		private double seconds;
+		private int failed;
+		private IOException serverError;
+
+		private Result(long[] latencies, double seconds, int failed) {
+			this.latencies = latencies;
+			this.seconds = seconds;
+			this.failed = failed;
+		}
+	}
+}
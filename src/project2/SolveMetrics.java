@@ -0,0 +1,104 @@
+package project2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * The SolveMetrics class counts the problems the Agent has solved, how long
+ * they took and which of them ran out of time, so slow problems can be found
+ * and looked into.  It can be updated from several threads at once.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class SolveMetrics {
+
+	/*** Most deadline hits whose problem names are kept */
+	private static final int MAX_RECORDED = 100;
+
+	/*** Counters */
+	private AtomicLong solved;
+	private AtomicLong deadlineHits;
+	private AtomicLong totalNanos;
+	private AtomicLong maxNanos;
+
+	/*** Names of the first problems which hit the deadline */
+	private List<String> deadlineProblems;
+
+	/***************************************************************
+	 * Default constructor with every counter at zero
+	****************************************************************/
+	public SolveMetrics() {
+		solved = new AtomicLong();
+		deadlineHits = new AtomicLong();
+		totalNanos = new AtomicLong();
+		maxNanos = new AtomicLong();
+		deadlineProblems = new ArrayList<String>();
+	}
+
+	/***************************************************************
+	 * Count a solved problem
+	 *
+	 * @param result - the result of the problem
+	 * @param nanos - how long the problem took to solve
+	****************************************************************/
+	public void record(SolveResult result, long nanos) {
+		solved.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		long max = maxNanos.get();
+		while(nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+
+		if(result.isDeadlineHit()) {
+			deadlineHits.incrementAndGet();
+			synchronized(deadlineProblems) {
+				if(deadlineProblems.size() < MAX_RECORDED) {
+					deadlineProblems.add(result.getProblemName());
+				}
+			}
+		}
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables
+	 *
+	****************************************************************/
+	public long getSolved() {
+		return solved.get();
+	}
+
+	public long getDeadlineHits() {
+		return deadlineHits.get();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/***************************************************************
+	 * @return List<String> - the names of the first problems which
+	 * 						  hit the deadline, in the order they did
+	****************************************************************/
+	public List<String> getDeadlineProblems() {
+		synchronized(deadlineProblems) {
+			return new ArrayList<String>(deadlineProblems);
+		}
+	}
+
+	/***************************************************************
+	 * @return String - the counters as one line
+	****************************************************************/
+	@Override
+	public String toString() {
+		long count = solved.get();
+		return String.format("solved=%d deadlineHits=%d cappedMatches=%d meanMs=%.3f maxMs=%.3f", count,
+				deadlineHits.get(), MatchUtil.getCappedMatches(),
+				count == 0 ? 0.0 : totalNanos.get() / 1e6 / count, maxNanos.get() / 1e6);
+	}
+}
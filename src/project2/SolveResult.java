@@ -0,0 +1,70 @@
+package project2;
+
+import java.util.Arrays;
+
+/*******************************************************************************
+ * The SolveResult class holds the answer the Agent chose for a problem along
+ * with the score it gave each of the possible answers.  When the time budget
+ * for the problem ran out the answer is the best found so far, and the result
+ * is marked as a deadline hit.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class SolveResult {
+
+	/*** Name of the problem that was solved */
+	private String problemName;
+
+	/*** The answer the agent chose */
+	private String answer;
+
+	/*** Score for each possible answer, empty when the answers were not scored */
+	private int[] scores;
+
+	/*** If the time budget ran out before the answers were fully scored */
+	private boolean deadlineHit;
+
+	/***************************************************************
+	 * Constructor with values
+	****************************************************************/
+	public SolveResult(String problemName, String answer, int[] scores) {
+		this(problemName, answer, scores, false);
+	}
+
+	/***************************************************************
+	 * Constructor with values
+	****************************************************************/
+	public SolveResult(String problemName, String answer, int[] scores, boolean deadlineHit) {
+		this.problemName = problemName;
+		this.answer = answer;
+		this.scores = scores;
+		this.deadlineHit = deadlineHit;
+	}
+
+	/***************************************************************
+	 *
+	 * Getters for class instance variables 
+	 *
+	****************************************************************/
+	public String getProblemName() {
+		return problemName;
+	}
+
+	public String getAnswer() {
+		return answer;
+	}
+
+	public int[] getScores() {
+		return scores;
+	}
+
+	public boolean isDeadlineHit() {
+		return deadlineHit;
+	}
+
+	@Override
+	public String toString() {
+		return "SolveResult [" + problemName + ", answer=" + answer + ", scores=" + Arrays.toString(scores)
+				+ (deadlineHit ? ", deadline hit" : "") + "]";
+	}
+}
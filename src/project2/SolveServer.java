@@ -0,0 +1,716 @@
+package project2;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * The SolveServer keeps one warmed up Agent, and its caches, running so that
+ * problems can be solved without paying for JVM start up every time.  It
+ * listens on a local TCP port and reads problems in the Problems file format
+ * (See ProblemParser), one after the other, on each connection.  For each
+ * problem it replies with one line:
+ *
+ *   ANSWER 3 SCORES 1500 -20 ...   - the chosen answer and the score of each,
+ *                                    answers that could not win are PRUNED.
+ *                                    DEADLINE follows the scores when time ran
+ *                                    out and the answer is the best so far
+ *   BUSY                           - every worker is busy and the queue is full
+ *   ERROR message                  - the problem could not be read or solved
+ *
+ * A connection can also send PING (replies PONG), STATS (replies with the
+ * counters) or QUIT.  In selector mode a line longer than MAX_LINE_LENGTH, or
+ * a problem longer than MAX_PROBLEM_LENGTH, is answered with ERROR and the
+ * connection is closed.  Problems are solved on a bounded pool of workers with a
+ * bounded queue; when both are full the problem is turned away with BUSY
+ * rather than queued without limit, so clients know to back off.
+ *
+ * Connections are handled in one of two ways.  By default (serve) each
+ * connection is read and written with blocking I/O on a fixed pool of
+ * connection threads, so a connection waits for a free thread and a slow
+ * client holds its thread the whole time.  With --selector (serveSelector) one
+ * thread reads and writes every connection with non-blocking I/O, and only the
+ * CPU-bound solving uses the workers, so thousands of idle or slow clients cost
+ * no more than a buffer each (See SolveLoadTest to compare the two).
+ *
+ *   java project2.SolveServer [port] [workers] [queue size] [--selector] [--cold]
+ *
+ * --cold skips the warm up on the Problems folder, so the caches start empty
+ * and clients measure solving rather than cache hits.  Unlike a Project2 run
+ * the server gives each problem a time budget (See createAgent), so one slow
+ * problem can't hold a worker for long.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class SolveServer {
+
+	/*** Port the server listens on by default */
+	public static final int DEFAULT_PORT = 4545;
+
+	/*** Time allowed for each problem unless agent.timeBudgetMillis is set, in milliseconds */
+	public static final long DEFAULT_TIME_BUDGET = 1000;
+
+	/*** Number of threads handling connections with blocking I/O */
+	private static final int MAX_CONNECTIONS = 64;
+
+	/*** Most connections waiting to be accepted */
+	private static final int BACKLOG = 4096;
+
+	/*** Bytes read from a connection at once by the selector */
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	/*** Longest line, and most characters in one problem, the selector will hold for a connection */
+	private static final int MAX_LINE_LENGTH = 8192;
+	private static final int MAX_PROBLEM_LENGTH = 4 * 1024 * 1024;
+
+	/*** The agent every problem is solved by */
+	private Agent agent;
+
+	/*** Caches shared by every problem the server solves */
+	private BatchContext context;
+
+	/*** Workers which solve the problems */
+	private ThreadPoolExecutor workers;
+
+	/*** Threads which read from and write to the connections */
+	private ThreadPoolExecutor connections;
+
+	/*** The socket the server listens on */
+	private ServerSocketChannel serverChannel;
+	private ServerSocket serverSocket;
+
+	/*** Selector of the non-blocking connections, null unless serveSelector is running */
+	private volatile Selector selector;
+
+	/*** Connections with replies finished by the workers, for the selector to send */
+	private ConcurrentLinkedQueue<Connection> finished;
+
+	/*** Counters for reporting */
+	private AtomicLong solved;
+	private AtomicLong rejected;
+	private AtomicLong errors;
+	private AtomicInteger open;
+
+	/***************************************************************
+	 * Constructor with values
+	 * @param agent - the agent to solve the problems with
+	 * @param workerCount - number of problems solved at once
+	 * @param queueSize - number of problems which can wait for a worker
+	****************************************************************/
+	public SolveServer(Agent agent, int workerCount, int queueSize) {
+		if(workerCount < 1 || queueSize < 1) {
+			throw new IllegalArgumentException("Workers and queue size must be at least 1");
+		}
+		this.agent = agent;
+		this.context = new BatchContext();
+		this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+		this.connections = new ThreadPoolExecutor(MAX_CONNECTIONS, MAX_CONNECTIONS, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		this.finished = new ConcurrentLinkedQueue<Connection>();
+		this.solved = new AtomicLong();
+		this.rejected = new AtomicLong();
+		this.errors = new AtomicLong();
+		this.open = new AtomicInteger();
+	}
+
+	/***************************************************************
+	 * Solve every problem in the problems folder once so the JIT and
+	 * the caches are warm before the first client connects
+	 *
+	 * @param folder - the problems folder
+	 * @return int - the number of problems solved
+	****************************************************************/
+	public int warmUp(File folder) {
+		int toReturn = 0;
+		for(ProblemSet set : ProblemLoader.loadSets(folder)) {
+			for(RavensProblem problem : set.getProblems()) {
+				agent.solve(problem, context);
+				toReturn++;
+			}
+		}
+		return toReturn;
+	}
+
+	/***************************************************************
+	 * Listen on the port of the loopback address, handling each
+	 * connection on a connection thread, until the server is stopped.
+	 * Connections wait for a free thread once every thread is busy.
+	 *
+	 * @param port - the port to listen on, 0 for any free port
+	 * @throws IOException if the port can not be opened
+	****************************************************************/
+	public void serve(int port) throws IOException {
+		bind(port);
+		try {
+			while(!serverSocket.isClosed()) {
+				final Socket socket;
+				try {
+					socket = serverSocket.accept();
+				}catch(IOException e) {
+					//The socket was closed by stop()
+					break;
+				}
+				try {
+					connections.execute(new Runnable() {
+						@Override
+						public void run() {
+							handle(socket);
+						}
+					});
+				}catch(RejectedExecutionException e) {
+					reply(socket, "BUSY");
+				}
+			}
+		}finally {
+			stop();
+		}
+	}
+
+	/***************************************************************
+	 * Listen on the port of the loopback address, reading and writing
+	 * every connection on this thread with non-blocking I/O, until the
+	 * server is stopped.  Problems are solved on the workers, which
+	 * hand their replies back to this thread to send.
+	 *
+	 * @param port - the port to listen on, 0 for any free port
+	 * @throws IOException if the port can not be opened
+	****************************************************************/
+	public void serveSelector(int port) throws IOException {
+		bind(port);
+		try (Selector s = Selector.open()) {
+			selector = s;
+			serverChannel.configureBlocking(false);
+			serverChannel.register(s, SelectionKey.OP_ACCEPT);
+			while(serverChannel.isOpen()) {
+				s.select();
+
+				//Send the replies the workers have finished
+				Connection connection;
+				while((connection = finished.poll()) != null) {
+					connection.flush();
+				}
+
+				Iterator<SelectionKey> keys = s.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid()) {
+						continue;
+					}
+					if(key.isAcceptable()) {
+						accept(s);
+						continue;
+					}
+					connection = (Connection) key.attachment();
+					try {
+						if(key.isReadable()) {
+							connection.read();
+						}
+						if(key.isValid() && key.isWritable()) {
+							connection.write();
+						}
+					}catch(IOException e) {
+						//The client went away, there is no one left to tell
+						connection.close();
+					}
+				}
+			}
+
+			//Close the connections still open
+			for(SelectionKey key : s.keys()) {
+				if(key.attachment() instanceof Connection) {
+					((Connection) key.attachment()).close();
+				}
+			}
+		}finally {
+			selector = null;
+			stop();
+		}
+	}
+
+	/***************************************************************
+	 * Accept every connection waiting on the server channel and
+	 * register it with the selector
+	****************************************************************/
+	private void accept(Selector s) throws IOException {
+		SocketChannel channel;
+		while((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			Connection connection = new Connection(channel);
+			connection.key = channel.register(s, SelectionKey.OP_READ, connection);
+			open.incrementAndGet();
+		}
+	}
+
+	/***************************************************************
+	 * Open the server socket without accepting connections yet
+	 *
+	 * @param port - the port to listen on, 0 for any free port
+	 * @return int - the port the server is listening on
+	 * @throws IOException if the port can not be opened
+	****************************************************************/
+	public synchronized int bind(int port) throws IOException {
+		if(serverChannel == null) {
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+			serverSocket = serverChannel.socket();
+		}
+		return serverSocket.getLocalPort();
+	}
+
+	/***************************************************************
+	 * Stop accepting connections and shut the workers down
+	****************************************************************/
+	public synchronized void stop() {
+		try {
+			if(serverChannel != null) {
+				serverChannel.close();
+			}
+		}catch(IOException e) {
+			//Nothing left to do with the socket
+		}
+		Selector s = selector;
+		if(s != null) {
+			s.wakeup();
+		}
+		connections.shutdownNow();
+		workers.shutdown();
+	}
+
+	/***************************************************************
+	 * Read problems and commands from one connection until it is
+	 * closed or sends QUIT
+	 *
+	 * @param socket - the connection
+	****************************************************************/
+	private void handle(Socket socket) {
+		try {
+			socket.setTcpNoDelay(true);
+		}catch(SocketException e) {
+			//Replies are only slower without it
+		}
+		open.incrementAndGet();
+		try (Socket s = socket;
+				BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter writer = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.trim().isEmpty()) {
+					continue;
+				}
+				switch(line.trim()) {
+					case "PING":
+						writer.println("PONG");
+						break;
+					case "STATS":
+						writer.println(getStats());
+						break;
+					case "QUIT":
+						return;
+					default:
+						writer.println(solve(line, reader));
+						break;
+				}
+			}
+		}catch(IOException e) {
+			//The client went away, there is no one left to tell
+		}finally {
+			open.decrementAndGet();
+		}
+	}
+
+	/***************************************************************
+	 * Read a problem from the connection and solve it on a worker
+	 *
+	 * @param name - the first line of the problem, its name
+	 * @param reader - the connection to read the rest from
+	 * @return String - the reply to send
+	 * @throws IOException if the connection fails
+	****************************************************************/
+	private String solve(String name, BufferedReader reader) throws IOException {
+		final RavensProblem problem;
+		try {
+			problem = ProblemParser.parse(name, reader);
+		}catch(IOException e) {
+			if(e instanceof SocketException) {
+				throw e;
+			}
+			errors.incrementAndGet();
+			return "ERROR " + e.getMessage();
+		}
+
+		Future<String> future;
+		try {
+			future = workers.submit(new Callable<String>() {
+				@Override
+				public String call() {
+					return solve(problem);
+				}
+			});
+		}catch(RejectedExecutionException e) {
+			rejected.incrementAndGet();
+			return "BUSY";
+		}
+
+		try {
+			return future.get();
+		}catch(ExecutionException e) {
+			errors.incrementAndGet();
+			return "ERROR " + e.getCause();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "ERROR interrupted";
+		}
+	}
+
+	/***************************************************************
+	 * Solve a problem, on a worker, and count the result
+	 *
+	 * @param problem - the problem to solve
+	 * @return String - the reply to send
+	****************************************************************/
+	private String solve(RavensProblem problem) {
+		SolveResult result;
+		try {
+			result = agent.solve(problem, context);
+		}catch(RuntimeException e) {
+			errors.incrementAndGet();
+			return "ERROR " + e;
+		}
+		solved.incrementAndGet();
+		StringBuilder toReturn = new StringBuilder("ANSWER ").append(result.getAnswer()).append(" SCORES");
+		for(int score : result.getScores()) {
+			toReturn.append(' ').append(score);
+		}
+		if(result.isDeadlineHit()) {
+			toReturn.append(" DEADLINE");
+		}
+		return toReturn.toString();
+	}
+
+	/***************************************************************
+	 * Helper method to send one line and close the connection
+	****************************************************************/
+	private void reply(Socket socket, String line) {
+		try (Socket s = socket;
+				PrintWriter writer = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+			writer.println(line);
+		}catch(IOException e) {
+			//The client went away, there is no one left to tell
+		}
+	}
+
+	/***************************************************************
+	 * @return String - the counters as one line
+	****************************************************************/
+	public String getStats() {
+		return "STATS solved=" + solved.get() + " busy=" + rejected.get() + " errors=" + errors.get()
+				+ " open=" + open.get() + " queued=" + workers.getQueue().size() + " active=" + workers.getActiveCount()
+				+ " baselineHits=" + context.getBaselineHits() + " resultHits=" + context.getResultHits()
+				+ " evictions=" + context.getEvictions()
+				+ " deadlineHits=" + agent.getMetrics().getDeadlineHits();
+	}
+
+	/*******************************************************************************
+	 * Create the Agent a server solves with, with the time budget from the
+	 * agent.timeBudgetMillis system property or else DEFAULT_TIME_BUDGET
+	 *
+	 * @return Agent - the agent
+	 *******************************************************************************/
+	public static Agent createAgent() {
+		Agent toReturn = new Agent();
+		toReturn.setTimeBudget(Long.getLong(Agent.TIME_BUDGET_PROPERTY, DEFAULT_TIME_BUDGET).longValue());
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Start the server, warming it up on the Problems folder first
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		List<String> values = new ArrayList<String>(Arrays.asList(args));
+		boolean selectorMode = values.remove("--selector");
+		boolean cold = values.remove("--cold");
+		int port = values.size() > 0 ? Integer.parseInt(values.get(0)) : DEFAULT_PORT;
+		int workerCount = values.size() > 1 ? Integer.parseInt(values.get(1)) : Runtime.getRuntime().availableProcessors();
+		int queueSize = values.size() > 2 ? Integer.parseInt(values.get(2)) : workerCount * 4;
+
+		SolveServer server = new SolveServer(createAgent(), workerCount, queueSize);
+		if(!cold) {
+			long start = System.nanoTime();
+			int warmed = server.warmUp(new File(ProblemLoader.PROBLEMS_FOLDER));
+			System.out.println(String.format("Warmed up on %d problems in %.2f s", warmed, (System.nanoTime() - start) / 1e9));
+		}
+
+		System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.bind(port)
+				+ " with " + workerCount + " workers and a queue of " + queueSize
+				+ (selectorMode ? ", non-blocking connections" : ", " + MAX_CONNECTIONS + " connection threads"));
+		if(selectorMode) {
+			server.serveSelector(port);
+		}else {
+			server.serve(port);
+		}
+	}
+
+	/*******************************************************************************
+	 * A connection handled by the selector.  Only the selector thread reads and
+	 * writes it; the workers only fill in its replies.  Replies are sent in the
+	 * order the problems arrived, even if a later problem is solved first.
+	 *******************************************************************************/
+	private class Connection {
+
+		/*** The channel and its key in the selector */
+		private SocketChannel channel;
+		private SelectionKey key;
+
+		/*** Bytes read but not yet decoded, and the decoded characters */
+		private ByteBuffer input;
+		private CharsetDecoder decoder;
+		private CharBuffer chars;
+
+		/*** The line being read, and the lines of the problem being read, null between problems */
+		private StringBuilder line;
+		private List<String> problemLines;
+
+		/*** Characters in the lines of the problem being read */
+		private int problemLength;
+
+		/*** Replies in the order they are owed, and bytes waiting to be written */
+		private ArrayDeque<Reply> replies;
+		private ArrayDeque<ByteBuffer> output;
+
+		/*** Set once the client sends QUIT, the connection closes once the replies are sent */
+		private boolean quit;
+
+		private Connection(SocketChannel channel) {
+			this.channel = channel;
+			this.input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			this.decoder = StandardCharsets.UTF_8.newDecoder();
+			this.chars = CharBuffer.allocate(READ_BUFFER_SIZE);
+			this.line = new StringBuilder();
+			this.replies = new ArrayDeque<Reply>();
+			this.output = new ArrayDeque<ByteBuffer>();
+		}
+
+		/***************************************************************
+		 * Read what has arrived and act on each complete line
+		****************************************************************/
+		private void read() throws IOException {
+			if(channel.read(input) < 0) {
+				close();
+				return;
+			}
+
+			//Bytes of a character split between reads stay in the input
+			input.flip();
+			decoder.decode(input, chars, false);
+			input.compact();
+			chars.flip();
+			while(chars.hasRemaining() && !quit) {
+				char c = chars.get();
+				if(c != '\n') {
+					if(line.length() >= MAX_LINE_LENGTH) {
+						reject("line longer than " + MAX_LINE_LENGTH + " characters");
+						break;
+					}
+					line.append(c);
+					continue;
+				}
+				if(line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+					line.setLength(line.length() - 1);
+				}
+				onLine(line.toString());
+				line.setLength(0);
+			}
+			chars.clear();
+			flush();
+		}
+
+		/***************************************************************
+		 * Act on one line, the same way handle does
+		****************************************************************/
+		private void onLine(String text) {
+			if(problemLines != null) {
+				if(text.equals(ProblemParser.END)) {
+					submit(problemLines);
+					problemLines = null;
+				}else if(problemLength + text.length() > MAX_PROBLEM_LENGTH) {
+					reject("problem longer than " + MAX_PROBLEM_LENGTH + " characters");
+				}else {
+					problemLines.add(text);
+					problemLength += text.length();
+				}
+				return;
+			}
+			if(text.trim().isEmpty()) {
+				return;
+			}
+			switch(text.trim()) {
+				case "PING":
+					replies.add(new Reply("PONG"));
+					break;
+				case "STATS":
+					replies.add(new Reply(getStats()));
+					break;
+				case "QUIT":
+					quit = true;
+					break;
+				default:
+					problemLines = new ArrayList<String>();
+					problemLines.add(text);
+					problemLength = text.length();
+					break;
+			}
+		}
+
+		/***************************************************************
+		 * Turn away a client which sent more than the limits allow.  The
+		 * rest of what it sends is ignored, and the connection is closed
+		 * once the replies already owed have been sent.
+		****************************************************************/
+		private void reject(String message) {
+			errors.incrementAndGet();
+			replies.add(new Reply("ERROR " + message));
+			line.setLength(0);
+			problemLines = null;
+			quit = true;
+		}
+
+		/***************************************************************
+		 * Parse a problem and hand it to the workers, its reply is
+		 * filled in when it is solved
+		****************************************************************/
+		private void submit(List<String> lines) {
+			final Reply reply = new Reply(null);
+			replies.add(reply);
+
+			StringBuilder text = new StringBuilder();
+			for(String l : lines) {
+				text.append(l).append('\n');
+			}
+			final RavensProblem problem;
+			try {
+				problem = ProblemParser.parse(new BufferedReader(new StringReader(text.toString())));
+			}catch(IOException e) {
+				errors.incrementAndGet();
+				reply.text = "ERROR " + e.getMessage();
+				return;
+			}
+
+			try {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						reply.text = solve(problem);
+						finished.add(Connection.this);
+						Selector s = selector;
+						if(s != null) {
+							s.wakeup();
+						}
+					}
+				});
+			}catch(RejectedExecutionException e) {
+				rejected.incrementAndGet();
+				reply.text = "BUSY";
+			}
+		}
+
+		/***************************************************************
+		 * Move the replies which are ready, in order, to the output and
+		 * write as much as the channel will take
+		****************************************************************/
+		private void flush() {
+			if(!channel.isOpen()) {
+				return;
+			}
+			while(!replies.isEmpty() && replies.peek().text != null) {
+				output.add(StandardCharsets.UTF_8.encode(replies.poll().text + "\n"));
+			}
+			try {
+				write();
+			}catch(IOException e) {
+				//The client went away, there is no one left to tell
+				close();
+			}
+		}
+
+		/***************************************************************
+		 * Write as much of the output as the channel will take, and only
+		 * ask to be told when it can take more if some is left
+		****************************************************************/
+		private void write() throws IOException {
+			while(!output.isEmpty()) {
+				channel.write(output.peek());
+				if(output.peek().hasRemaining()) {
+					break;
+				}
+				output.poll();
+			}
+			if(quit && replies.isEmpty() && output.isEmpty()) {
+				close();
+				return;
+			}
+			key.interestOps((quit ? 0 : SelectionKey.OP_READ) | (output.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+		}
+
+		/***************************************************************
+		 * Close the channel, replies still being solved are dropped
+		****************************************************************/
+		private void close() {
+			if(!channel.isOpen()) {
+				return;
+			}
+			open.decrementAndGet();
+			try {
+				channel.close();
+			}catch(IOException e) {
+				//Nothing left to do with the channel
+			}
+		}
+	}
+
+	/*******************************************************************************
+	 * A reply owed to a connection, the text is null until it is ready
+	 *******************************************************************************/
+	private static class Reply {
+		private volatile String text;
+
+		private Reply(String text) {
+			this.text = text;
+		}
+	}
+}
@@ -0,0 +1,382 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * TransformUtil is a Service class which finds the transformation that turns
+ * one figure Bitmap into another.  It is the image side of the angle and
+ * vertical-flip handling in FrameUtil.applyTransformation: every rotation in
+ * steps of 45 degrees, with and without a mirror, is tried together with small
+ * translations, and the transform giving the most similar figure wins.
+ *
+ * Rotating a Bitmap is slow, so the rotated and mirrored variants of each
+ * figure are made once and cached.  The cache is keyed by the figure object
+ * itself rather than its pixels, since a Bitmap can be changed after it was
+ * cached, and only holds the figure weakly.  Translations are cheap word
+ * shifts, so testing a transform only costs a shift and a popcount.
+ *
+ * @author Craig Graham
+ *******************************************************************************/
+public class TransformUtil {
+
+	/*** Angle between rotations tried */
+	public static final int ROTATION_STEP = 45;
+
+	/*** Number of rotations tried, from 0 to 315 degrees */
+	public static final int ROTATIONS = 360 / ROTATION_STEP;
+
+	/*** Largest translation tried in each direction, in pixels */
+	public static final int MAX_SHIFT = 6;
+
+	/*** Distance between translations tried, in pixels */
+	public static final int SHIFT_STEP = 2;
+
+	/*** Rotated and mirrored variants of the figures seen so far, by the identity hash of the figure */
+	private Map<Integer, List<Variants>> variants;
+
+	/*** Variants whose figure has been garbage collected */
+	private ReferenceQueue<Bitmap> collected;
+
+	/*** Number of transforms tested, for reporting */
+	private AtomicLong transformsTested;
+
+	/*******************************************************************************
+	 * Default constructor with an empty variant cache.
+	 *******************************************************************************/
+	public TransformUtil() {
+		variants = new HashMap<Integer, List<Variants>>();
+		collected = new ReferenceQueue<Bitmap>();
+		transformsTested = new AtomicLong();
+	}
+
+	/*******************************************************************************
+	 * Find the transform which best turns the first figure into the second.
+	 * Ties go to the transform tried first, so the identity wins over anything
+	 * that only matches as well.
+	 *
+	 * @param first - the figure before the transform, such as A
+	 * @param second - the figure after the transform, such as B
+	 * @return Transform - the best transform with its similarity
+	 *******************************************************************************/
+	public Transform findTransform(Bitmap first, Bitmap second) {
+		return findTransforms(first, second, MAX_SHIFT, SHIFT_STEP, 1).get(0);
+	}
+
+	/*******************************************************************************
+	 * Find the best few transforms which turn the first figure into the second,
+	 * trying every variant with translations up to maxShift in each direction.
+	 *
+	 * @param first - the figure before the transform, such as A
+	 * @param second - the figure after the transform, such as B
+	 * @param maxShift - largest translation tried, in pixels
+	 * @param shiftStep - distance between translations tried, in pixels
+	 * @param count - the number of transforms to keep
+	 * @return List<Transform> - the best transforms, best first
+	 *******************************************************************************/
+	public List<Transform> findTransforms(Bitmap first, Bitmap second, int maxShift, int shiftStep, int count) {
+		List<Transform> toReturn = new ArrayList<Transform>();
+		for(int variant = 0; variant < ROTATIONS * 2; variant++) {
+			search(first, second, variant, 0, 0, maxShift, shiftStep, count, toReturn);
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Refine a transform found on smaller copies of the figures.  Only the same
+	 * variant is tried, with translations around the scaled up translation.
+	 *
+	 * @param first - the full size figure before the transform
+	 * @param second - the full size figure after the transform
+	 * @param coarse - the transform found on the smaller copies
+	 * @param scale - how many times larger the full size figures are
+	 * @return Transform - the best transform near the coarse transform
+	 *******************************************************************************/
+	public Transform refineTransform(Bitmap first, Bitmap second, Transform coarse, int scale) {
+		List<Transform> toReturn = new ArrayList<Transform>();
+		int reach = Math.max(SHIFT_STEP, scale / 2) / SHIFT_STEP * SHIFT_STEP;
+		search(first, second, coarse.getVariant(), coarse.getDx() * scale, coarse.getDy() * scale,
+				reach, SHIFT_STEP, 1, toReturn);
+		return toReturn.get(0);
+	}
+
+	/*******************************************************************************
+	 * Helper method to try one variant of the first figure with the translations
+	 * around dx, dy, keeping the best count transforms in order
+	 *******************************************************************************/
+	private void search(Bitmap first, Bitmap second, int variant, int centreX, int centreY, int reach,
+			int shiftStep, int count, List<Transform> best) {
+		Bitmap figure = getVariants(first)[variant];
+		Bitmap shifted = new Bitmap(first.getWidth(), first.getHeight());
+		for(int dy = centreY - reach; dy <= centreY + reach; dy += shiftStep) {
+			for(int dx = centreX - reach; dx <= centreX + reach; dx += shiftStep) {
+				double similarity = figure.shift(dx, dy, shifted).tanimoto(second);
+				transformsTested.incrementAndGet();
+
+				//Insert in order, after any transform that is as good and simpler
+				int index = best.size();
+				while(index > 0 && (similarity > best.get(index - 1).similarity
+						|| (similarity == best.get(index - 1).similarity && isSmaller(variant, dx, dy, best.get(index - 1))))) {
+					index--;
+				}
+				if(index < count) {
+					best.add(index, new Transform(variant % ROTATIONS * ROTATION_STEP, variant >= ROTATIONS, dx, dy, similarity));
+					if(best.size() > count) {
+						best.remove(count);
+					}
+				}
+			}
+		}
+	}
+
+	/*******************************************************************************
+	 * Apply a transform to a figure
+	 *
+	 * @param figure - the figure to transform, such as C
+	 * @param transform - the transform to apply
+	 * @return Bitmap - the transformed figure
+	 *******************************************************************************/
+	public Bitmap applyTransform(Bitmap figure, Transform transform) {
+		Bitmap variant = getVariants(figure)[transform.getVariant()];
+		return variant.shift(transform.getDx(), transform.getDy(), new Bitmap(figure.getWidth(), figure.getHeight()));
+	}
+
+	/*******************************************************************************
+	 * Find the transform from A to B, apply it to C and choose the answer most
+	 * similar to the result.
+	 *
+	 * @param problem - the problem image
+	 * @return double[] - the similarity of each answer to the transformed C
+	 *******************************************************************************/
+	public double[] scoreAnswers(ProblemImage problem) {
+		Transform transform = findTransform(problem.getFigure("A"), problem.getFigure("B"));
+		Bitmap predicted = applyTransform(problem.getFigure("C"), transform);
+		double[] toReturn = new double[6];
+		for(int i = 0; i < toReturn.length; i++) {
+			toReturn[i] = predicted.tanimoto(problem.getFigure(String.valueOf(i + 1)));
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Get the rotated and mirrored variants of the figure, making them the first
+	 * time the figure is seen.  Variant r is the figure rotated by r steps, and
+	 * variant ROTATIONS + r is the mirrored figure rotated by r steps.  Vertical
+	 * flips are covered as a mirror rotated by 180 degrees.
+	 *
+	 * @param figure - the figure
+	 * @return Bitmap[] - the variants of the figure
+	 *******************************************************************************/
+	public Bitmap[] getVariants(Bitmap figure) {
+		Integer hash = Integer.valueOf(System.identityHashCode(figure));
+		Bitmap[] cached = null;
+		synchronized(variants) {
+			expunge();
+			List<Variants> bucket = variants.get(hash);
+			for(int i = 0; bucket != null && i < bucket.size() && cached == null; i++) {
+				if(bucket.get(i).get() == figure) {
+					cached = bucket.get(i).rotations;
+				}
+			}
+		}
+
+		//Two threads may make the same variants, the copy cached last is kept
+		if(cached == null) {
+			cached = new Bitmap[ROTATIONS * 2];
+			Bitmap mirrored = figure.flipHorizontal();
+			for(int r = 0; r < ROTATIONS; r++) {
+				cached[r] = r == 0 ? null : figure.rotate(r * ROTATION_STEP);
+				cached[ROTATIONS + r] = r == 0 ? mirrored : mirrored.rotate(r * ROTATION_STEP);
+			}
+			synchronized(variants) {
+				List<Variants> bucket = variants.get(hash);
+				if(bucket == null) {
+					bucket = new ArrayList<Variants>(1);
+					variants.put(hash, bucket);
+				}
+				bucket.add(new Variants(figure, cached, collected));
+			}
+		}
+
+		//The cache can't hold the figure itself or it would never be collected
+		Bitmap[] toReturn = cached.clone();
+		toReturn[0] = figure;
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Helper method to drop the variants of figures which have been garbage
+	 * collected, called while holding the lock on the cache
+	 *******************************************************************************/
+	private void expunge() {
+		Reference<? extends Bitmap> reference;
+		while((reference = collected.poll()) != null) {
+			Variants entry = (Variants) reference;
+			List<Variants> bucket = variants.get(entry.hash);
+			if(bucket != null) {
+				bucket.remove(entry);
+				if(bucket.isEmpty()) {
+					variants.remove(entry.hash);
+				}
+			}
+		}
+	}
+
+	/*******************************************************************************
+	 * Helper method to prefer the simplest transform when two are as good:
+	 * the lowest variant and then the smallest translation.
+	 *******************************************************************************/
+	private boolean isSmaller(int variant, int dx, int dy, Transform best) {
+		if(variant != best.getVariant()) {
+			return variant < best.getVariant();
+		}
+		return Math.abs(dx) + Math.abs(dy) < Math.abs(best.getDx()) + Math.abs(best.getDy());
+	}
+
+	/*******************************************************************************
+	 * @return long - the number of transforms tested so far
+	 *******************************************************************************/
+	public long getTransformsTested() {
+		return transformsTested.get();
+	}
+
+	/*******************************************************************************
+	 * Time the transform search over every problem image and report the cost
+	 * of each transform tested and how often the transformed C picks the right
+	 * answer.  The first argument can be used to read the images from another
+	 * folder.
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		File folder = new File(args.length > 0 ? args[0] : ImageUtil.IMAGES_FOLDER);
+		List<RavensProblem> verbal = new ArrayList<RavensProblem>();
+		List<ProblemImage> problems = VisualSolver.loadProblems(folder, new ImageCache(), verbal);
+
+		//The first pass builds the variant cache, the second only searches
+		TransformUtil transformUtil = new TransformUtil();
+		long start = System.nanoTime();
+		for(ProblemImage problem : problems) {
+			transformUtil.scoreAnswers(problem);
+		}
+		double cacheSeconds = (System.nanoTime() - start) / 1e9;
+
+		long tested = transformUtil.getTransformsTested();
+		int correct = 0;
+		start = System.nanoTime();
+		for(int i = 0; i < problems.size(); i++) {
+			double[] scores = transformUtil.scoreAnswers(problems.get(i));
+			int best = 0;
+			for(int a = 1; a < scores.length; a++) {
+				if(scores[a] > scores[best]) {
+					best = a;
+				}
+			}
+			String answer = String.valueOf(best + 1);
+			if(answer.equals(verbal.get(i).checkAnswer(answer))) {
+				correct++;
+			}
+		}
+		long nanos = System.nanoTime() - start;
+		tested = transformUtil.getTransformsTested() - tested;
+
+		System.out.println("images\tcache s\ttransforms\tus/transform\taccuracy");
+		System.out.println(String.format("%d\t%.2f\t%d\t%.3f\t%.3f", problems.size(), cacheSeconds, tested,
+				tested == 0 ? 0.0 : nanos / 1e3 / tested,
+				problems.isEmpty() ? 0.0 : (double) correct / problems.size()));
+	}
+
+	/*******************************************************************************
+	 * A rotation, mirror and translation, applied in that order, and how
+	 * similar the transformed figure was to the figure it was found for.
+	 *******************************************************************************/
+	public static class Transform {
+
+		/*** Degrees rotated anticlockwise */
+		private int rotation;
+
+		/*** If the figure is mirrored left to right before it is rotated */
+		private boolean mirrored;
+
+		/*** Translation in pixels */
+		private int dx;
+		private int dy;
+
+		/*** Tanimoto similarity of the transformed figure to the target */
+		private double similarity;
+
+		/***************************************************************
+		 * Constructor with values
+		****************************************************************/
+		public Transform(int rotation, boolean mirrored, int dx, int dy, double similarity) {
+			this.rotation = rotation;
+			this.mirrored = mirrored;
+			this.dx = dx;
+			this.dy = dy;
+			this.similarity = similarity;
+		}
+
+		/***************************************************************
+		 * @return int - the index of the figure variant for this transform
+		****************************************************************/
+		public int getVariant() {
+			return (mirrored ? ROTATIONS : 0) + rotation / ROTATION_STEP;
+		}
+
+		/***************************************************************
+		 *
+		 * Getters for class instance variables
+		 *
+		****************************************************************/
+		public int getRotation() {
+			return rotation;
+		}
+
+		public boolean isMirrored() {
+			return mirrored;
+		}
+
+		public int getDx() {
+			return dx;
+		}
+
+		public int getDy() {
+			return dy;
+		}
+
+		public double getSimilarity() {
+			return similarity;
+		}
+
+		@Override
+		public String toString() {
+			return "Transform [rotation=" + rotation + ", mirrored=" + mirrored + ", dx=" + dx + ", dy=" + dy
+					+ ", similarity=" + similarity + "]";
+		}
+	}
+
+	/*******************************************************************************
+	 * The cached variants of one figure, which only holds the figure weakly.
+	 * Variant 0 is the figure itself, so it is left null.
+	 *******************************************************************************/
+	private static class Variants extends WeakReference<Bitmap> {
+
+		/*** Identity hash of the figure, it can't be read once the figure is collected */
+		private final Integer hash;
+
+		/*** The rotated and mirrored variants of the figure */
+		private final Bitmap[] rotations;
+
+		private Variants(Bitmap figure, Bitmap[] rotations, ReferenceQueue<Bitmap> queue) {
+			super(figure, queue);
+			this.hash = Integer.valueOf(System.identityHashCode(figure));
+			this.rotations = rotations;
+		}
+	}
+}
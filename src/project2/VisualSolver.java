@@ -0,0 +1,209 @@
+package project2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*******************************************************************************
+ * The VisualSolver answers a problem from its image alone (See ImageUtil), so
+ * problems without a verbal description can still be solved.  Every figure is
+ * a Bitmap and the possible answers are scored with popcounts of the ANDed and
+ * ORed words:
+ *
+ *   - The predicted answer is C with the pixels A lost removed and the pixels
+ *     B gained added, or C transformed the way A is transformed into B (See
+ *     TransformUtil).  Answers which look like a prediction score higher.
+ *   - The answer should be as similar to C as B is to A (and, for 2x2
+ *     problems, as similar to B as C is to A).
+ *
+ * Run as a program it solves every problem image it can match to a problem in
+ * the Problems folder and reports the throughput and accuracy.
+ *
+ *@author Craig Graham
+ *******************************************************************************/
+public class VisualSolver {
+
+	/*** Similarities are scaled up so scores can be compared as ints */
+	private static final int SCALE = 1000;
+
+	/*** Number of timed passes over the images */
+	private static final int PASSES = 20;
+
+	/*** Used to find how A is rotated, mirrored or moved to make B */
+	private TransformUtil transformUtil;
+
+	/*******************************************************************************
+	 * Default constructor.
+	 *******************************************************************************/
+	public VisualSolver() {
+		transformUtil = new TransformUtil();
+	}
+
+	/*******************************************************************************
+	 * Score each of the six possible answers in the problem image
+	 *
+	 * @param problem - the problem image
+	 * @return int[] - the score for each answer, answer 1 first
+	 *******************************************************************************/
+	public int[] score(ProblemImage problem) {
+		Bitmap figureA = problem.getFigure("A");
+		TransformUtil.Transform transform = transformUtil.findTransform(figureA, problem.getFigure("B"));
+		double[] scores = scoreAnswers(problem, figureA.getWidth(), transform, null);
+
+		int[] toReturn = new int[scores.length];
+		for(int i = 0; i < toReturn.length; i++) {
+			toReturn[i] = (int) Math.round(scores[i] * SCALE);
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Score the possible answers in the problem image using the figures at the
+	 * given size.
+	 *
+	 * @param problem - the problem image
+	 * @param size - width of the figures to compare
+	 * @param transform - the transform from A to B found at the same size
+	 * @param include - which answers to score, or null to score them all
+	 * @return double[] - the score for each answer, answer 1 first.  Answers
+	 * 					  which were not scored are negative infinity.
+	 *******************************************************************************/
+	public double[] scoreAnswers(ProblemImage problem, int size, TransformUtil.Transform transform, boolean[] include) {
+		Bitmap figureA = getFigure(problem, "A", size);
+		Bitmap figureB = getFigure(problem, "B", size);
+		Bitmap figureC = getFigure(problem, "C", size);
+		boolean column = problem.getProblemType().equals("2x2");
+
+		//What A becomes in B, applied to C, both as pixels lost and gained and
+		//as the rotation, mirror and translation which best turns A into B
+		Bitmap predicted = figureC.andNot(figureA.andNot(figureB)).or(figureB.andNot(figureA));
+		Bitmap transformed = transformUtil.applyTransform(figureC, transform);
+		double rowSimilarity = figureA.tanimoto(figureB);
+		double columnSimilarity = figureA.tanimoto(figureC);
+
+		double[] toReturn = new double[6];
+		for(int i = 0; i < toReturn.length; i++) {
+			if(include != null && !include[i]) {
+				toReturn[i] = Double.NEGATIVE_INFINITY;
+				continue;
+			}
+			Bitmap answer = getFigure(problem, String.valueOf(i + 1), size);
+			double score = Math.max(predicted.tanimoto(answer), transform.getSimilarity() * transformed.tanimoto(answer));
+			score -= Math.abs(rowSimilarity - figureC.tanimoto(answer));
+			if(column) {
+				score -= Math.abs(columnSimilarity - figureB.tanimoto(answer));
+			}
+			toReturn[i] = score;
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Get a figure at the given size.  Images loaded through the ImageCache
+	 * already hold a copy at every size the solvers use (See RESOLUTIONS), so a
+	 * copy is only made here for images which were not, and it is not kept,
+	 * since the image may be shared with other threads.
+	 *
+	 * @param problem - the problem image
+	 * @param figureName - name of the figure
+	 * @param size - width of the figure
+	 * @return Bitmap - the figure at that size
+	 *******************************************************************************/
+	public static Bitmap getFigure(ProblemImage problem, String figureName, int size) {
+		Bitmap toReturn = problem.getFigure(figureName, size);
+		if(toReturn == null) {
+			Bitmap figure = problem.getFigure(figureName);
+			toReturn = figure.downsample(figure.getWidth() / size);
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Helper method to load every problem image which has a matching problem in
+	 * the Problems folder
+	 *
+	 * @param folder - the images folder
+	 * @param imageCache - the cache to load the images through
+	 * @param verbal - filled with the matching problem for each image
+	 * @return List<ProblemImage> - the problem images
+	 * @throws IOException if an image can not be read
+	 *******************************************************************************/
+	static List<ProblemImage> loadProblems(File folder, ImageCache imageCache, List<RavensProblem> verbal) throws IOException {
+		List<ProblemImage> toReturn = new ArrayList<ProblemImage>();
+		Map<String, File> images = new ImageUtil().indexImages(folder);
+		for(ProblemSet set : ProblemLoader.loadSets(new File(ProblemLoader.PROBLEMS_FOLDER))) {
+			for(RavensProblem problem : set.getProblems()) {
+				File image = images.get(ImageUtil.getImageKey(problem.getName()));
+				if(image != null) {
+					toReturn.add(imageCache.load(image));
+					verbal.add(problem);
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	/*******************************************************************************
+	 * Solve the problem image
+	 *
+	 * @param problem - the problem image
+	 * @return int - the best answer, 1 through 6.  Ties go to the first answer.
+	 *******************************************************************************/
+	public int solve(ProblemImage problem) {
+		int[] scores = score(problem);
+		int toReturn = 0;
+		for(int i = 1; i < scores.length; i++) {
+			if(scores[i] > scores[toReturn]) {
+				toReturn = i;
+			}
+		}
+		return toReturn + 1;
+	}
+
+	/*******************************************************************************
+	 * Solve every problem image which has a matching problem in the Problems
+	 * folder and report the throughput and accuracy.  The first argument can
+	 * be used to read the images from another folder.
+	 *******************************************************************************/
+	public static void main(String[] args) throws IOException {
+		File folder = new File(args.length > 0 ? args[0] : ImageUtil.IMAGES_FOLDER);
+		ImageCache imageCache = new ImageCache();
+		VisualSolver solver = new VisualSolver();
+
+		//Decode every image once, the timed passes only measure the solving
+		List<RavensProblem> verbal = new ArrayList<RavensProblem>();
+		long start = System.nanoTime();
+		List<ProblemImage> problems = loadProblems(folder, imageCache, verbal);
+		double loadSeconds = (System.nanoTime() - start) / 1e9;
+
+		//Loading again should only hit the cache
+		start = System.nanoTime();
+		loadProblems(folder, imageCache, new ArrayList<RavensProblem>());
+		double cachedSeconds = (System.nanoTime() - start) / 1e9;
+
+		//Warm up pass so the timed passes are not measuring the JIT
+		int correct = 0;
+		for(int i = 0; i < problems.size(); i++) {
+			String answer = String.valueOf(solver.solve(problems.get(i)));
+			if(answer.equals(verbal.get(i).checkAnswer(answer))) {
+				correct++;
+			}
+		}
+
+		start = System.nanoTime();
+		for(int pass = 0; pass < PASSES; pass++) {
+			for(ProblemImage problem : problems) {
+				solver.solve(problem);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("images\tload s\tcached load s\tproblems/s\taccuracy");
+		System.out.println(String.format("%d\t%.2f\t%.3f\t%.1f\t%.3f", problems.size(), loadSeconds, cachedSeconds,
+				problems.size() * PASSES / seconds,
+				problems.isEmpty() ? 0.0 : (double) correct / problems.size()));
+		System.out.println(imageCache);
+	}
+}